@@ -0,0 +1,41 @@
+package crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmarks {
+
+    @Param({"32", "1024", "16384"})
+    public int length;
+
+    private byte[] message;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("HashBenchmarks".getBytes());
+        message = CryptoUtil.randomMessage(length, random);
+    }
+
+    @Benchmark
+    public byte[] fastHash() {
+        return CryptoUtil.fastHash(message);
+    }
+
+}
@@ -0,0 +1,110 @@
+package crypto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScalarBenchmarks {
+
+    private Scalar a;
+    private Scalar b;
+    private Scalar[] batch;
+    private ScalarVector vector;
+    private ScalarVector other;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("ScalarBenchmarks".getBytes());
+        a = Scalar.randomScalar(random);
+        b = Scalar.randomScalar(random);
+        batch = Scalar.randomScalars(64, random);
+        vector = new ScalarVector(batch);
+        other = new ScalarVector(Scalar.randomScalars(64, random));
+    }
+
+    @Benchmark
+    public Scalar add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Scalar sub() {
+        return a.sub(b);
+    }
+
+    @Benchmark
+    public Scalar mul() {
+        return a.mul(b);
+    }
+
+    @Benchmark
+    public Scalar muladd() {
+        return a.muladd(b, a);
+    }
+
+    @Benchmark
+    public Scalar mulThenAdd() {
+        return a.mul(b).add(a);
+    }
+
+    @Benchmark
+    public Scalar sq() {
+        return a.sq();
+    }
+
+    @Benchmark
+    public Scalar pow() {
+        return a.pow(64);
+    }
+
+    @Benchmark
+    public Scalar invert() {
+        return a.invert();
+    }
+
+    @Benchmark
+    public Scalar[] invertAll() {
+        return Scalar.invertAll(batch);
+    }
+
+    @Benchmark
+    public Scalar scalarInnerProduct() {
+        return Scalar.innerProduct(batch, batch);
+    }
+
+    @Benchmark
+    public Scalar innerProduct() {
+        return vector.innerProduct(other);
+    }
+
+    @Benchmark
+    public ScalarVector axpy() {
+        return vector.axpy(a, other);
+    }
+
+    @Benchmark
+    public Scalar randomScalar() {
+        return Scalar.randomScalar();
+    }
+
+    @Benchmark
+    public Scalar hashToScalar() {
+        return CryptoUtil.hashToScalar(a.bytes);
+    }
+
+}
@@ -0,0 +1,49 @@
+package crypto.ed25519;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiExpBenchmarks {
+
+    @Param({"16", "128", "1024"})
+    public int size;
+
+    private Ed25519Point[] points;
+    private Scalar[] scalars;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("MultiExpBenchmarks".getBytes());
+        points = new Ed25519Point[size];
+        scalars = new Scalar[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = Ed25519Point.randomPoint(random);
+            scalars[i] = Scalar.randomScalar(random);
+        }
+    }
+
+    @Benchmark
+    public Ed25519Point multiply() {
+        return MultiExp.multiply(points, scalars);
+    }
+
+}
@@ -0,0 +1,87 @@
+package crypto.ed25519;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PointBenchmarks {
+
+    private Ed25519Point p;
+    private Ed25519Point q;
+    private Scalar s;
+    private byte[] encoded;
+    private Ed25519Point[] chain;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("PointBenchmarks".getBytes());
+        p = Ed25519Point.randomPoint(random);
+        q = Ed25519Point.randomPoint(random);
+        s = Scalar.randomScalar(random);
+        encoded = p.toBytes();
+        chain = new Ed25519Point[64];
+        for (int i = 0; i < chain.length; i++) chain[i] = Ed25519Point.randomPoint(random);
+    }
+
+    @Benchmark
+    public Ed25519Point scalarMultiply() {
+        return p.scalarMultiply(s);
+    }
+
+    @Benchmark
+    public Ed25519Point scalarMultiplyBase() {
+        return Ed25519Point.G.scalarMultiply(s);
+    }
+
+    @Benchmark
+    public Ed25519Point add() {
+        return p.add(q);
+    }
+
+    @Benchmark
+    public Ed25519Point addChain() {
+        Ed25519Point sum = Ed25519Point.ZERO;
+        for (Ed25519Point point : chain) sum = sum.add(point);
+        return sum;
+    }
+
+    @Benchmark
+    public Ed25519Point accumulateChain() {
+        PointAccumulator sum = new PointAccumulator();
+        for (Ed25519Point point : chain) sum.add(point);
+        return sum.toPoint();
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return p.add(q).toBytes();
+    }
+
+    @Benchmark
+    public Ed25519Point decompress() {
+        return new Ed25519Point(encoded);
+    }
+
+    @Benchmark
+    public Ed25519Point hashToPoint() {
+        return Ed25519Point.hashToPoint(encoded);
+    }
+
+}
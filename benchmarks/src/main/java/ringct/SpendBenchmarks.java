@@ -0,0 +1,73 @@
+package ringct;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ringct.signatures.SpendSignature;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signs and verifies a whole spend: the Proof2 over every ring and the MultiSignature over the key images
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SpendBenchmarks {
+
+    @Param({"1", "2", "4"})
+    public int inputs;
+
+    @Param({"2", "4"})
+    public int decompositionBase;
+
+    @Param({"2", "3", "4"})
+    public int decompositionExponent;
+
+    private SpendParams spendParams;
+    private RingCT ringCT;
+    private SpendSignature signature;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("SpendBenchmarks".getBytes());
+        Coin[] realInputs = new Coin[inputs];
+        Scalar total = Scalar.ZERO;
+        for (int i = 0; i < inputs; i++) {
+            realInputs[i] = Coin.newOutput(Scalar.intToScalar(1000 + i), random);
+            total = total.add(realInputs[i].amount);
+        }
+        Coin[] outputs = Coin.newOutputs(new Scalar[]{Scalar.intToScalar(500), total.sub(Scalar.intToScalar(500))},
+                random);
+
+        spendParams = new SpendParams(realInputs, outputs, decompositionBase, decompositionExponent,
+                new DecoyGenerator("SpendBenchmarks".getBytes()), random);
+        ringCT = spendParams.getRingCT();
+        signature = spendParams.sign(ringCT);
+        if (!ringCT.verify(signature)) throw new IllegalStateException("Spend setup is not valid");
+    }
+
+    @Benchmark
+    public SpendSignature sign() {
+        return spendParams.sign(ringCT);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return ringCT.verify(signature);
+    }
+
+}
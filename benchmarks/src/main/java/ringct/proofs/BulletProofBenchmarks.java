@@ -0,0 +1,48 @@
+package ringct.proofs;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulletProofBenchmarks {
+
+    private Scalar value;
+    private Scalar gamma;
+    private BulletProof proof;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("BulletProofBenchmarks".getBytes());
+        value = Scalar.intToScalar(123456789);
+        gamma = Scalar.randomScalar(random);
+        proof = BulletProof.prove(value, gamma, random);
+    }
+
+    @Benchmark
+    public BulletProof prove() {
+        return BulletProof.prove(value, gamma);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return proof.verify();
+    }
+
+}
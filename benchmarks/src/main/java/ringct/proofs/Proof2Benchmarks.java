@@ -0,0 +1,71 @@
+package ringct.proofs;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.Ed25519PointPair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import utils.ConcurrencyUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static crypto.CryptoUtil.ENCeg;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class Proof2Benchmarks {
+
+    @Param({"2", "4"})
+    public int decompositionBase;
+
+    @Param({"2", "3", "4"})
+    public int decompositionExponent;
+
+    private Ed25519PointPair[] co;
+    private int iAsterisk;
+    private Scalar r;
+    private Proof2 proof;
+
+    /* A ring of random pairs with an encryption of zero under r at iAsterisk */
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("Proof2Benchmarks".getBytes());
+        int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
+        iAsterisk = ringSize / 2;
+        r = Scalar.randomScalar(random);
+
+        co = new Ed25519PointPair[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            co[i] = i == iAsterisk ? ENCeg(Ed25519Point.ZERO, r) : new Ed25519PointPair(Ed25519Point.randomPoint(
+                    random), Ed25519Point.randomPoint(random));
+        }
+        proof = Proof2.prove(co, iAsterisk, r, decompositionBase, decompositionExponent, ConcurrencyUtils.DIRECT,
+                random);
+        if (!proof.isValid(decompositionBase, co)) throw new IllegalStateException("Proof2 setup is not valid");
+    }
+
+    @Benchmark
+    public Proof2 prove() {
+        return Proof2.prove(co, iAsterisk, r, decompositionBase, decompositionExponent);
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        return proof.isValid(decompositionBase, co);
+    }
+
+}
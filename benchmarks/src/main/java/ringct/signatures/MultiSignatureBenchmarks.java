@@ -0,0 +1,60 @@
+package ringct.signatures;
+
+import crypto.CryptoUtil;
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import crypto.ed25519.Ed25519Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MultiSignatureBenchmarks {
+
+    @Param({"1", "4", "16"})
+    public int keys;
+
+    private byte[] message;
+    private Scalar[] x;
+    private Ed25519Point[] X;
+    private MultiSignature.Signature signature;
+
+    @Setup
+    public void setup() {
+        KeccakRandom random = new KeccakRandom("MultiSignatureBenchmarks".getBytes());
+        message = CryptoUtil.randomMessage(32, random);
+        x = new Scalar[keys];
+        X = new Ed25519Point[keys];
+        for (int i = 0; i < keys; i++) {
+            x[i] = Scalar.randomScalar(random);
+            X[i] = Ed25519Point.G.scalarMultiply(x[i]);
+        }
+        signature = MultiSignature.sign(message, x, X, random);
+    }
+
+    @Benchmark
+    public MultiSignature.Signature sign() {
+        return MultiSignature.sign(message, x, X);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return MultiSignature.verify(message, X, signature);
+    }
+
+}
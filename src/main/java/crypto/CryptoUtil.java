@@ -2,25 +2,25 @@ package crypto;
 
 import crypto.ed25519.Ed25519Point;
 import crypto.ed25519.Ed25519PointPair;
+import crypto.ed25519.PointAccumulator;
 import org.apache.commons.pool2.BasePooledObjectFactory;
 import org.apache.commons.pool2.PooledObject;
 import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.bouncycastle.util.Arrays;
-import utils.ArrayUtils;
 import utils.ExceptionUtils;
+import utils.Metrics;
 
 import java.math.BigInteger;
-import java.security.SecureRandom;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static utils.ArrayUtils.concat;
 
 public class CryptoUtil {
 
-    public static final Random random = new SecureRandom();
+    public static final Random random = KeccakRandom.threadLocal();
     public static GenericObjectPool<Keccak> keccakPool = new GenericObjectPool<>(new BasePooledObjectFactory<Keccak>() {
 
         @Override
@@ -35,13 +35,16 @@ public class CryptoUtil {
     });
     public static BigInteger l = BigInteger.valueOf(2).pow(252).add(new BigInteger
             ("27742317777372353535851937790883648493"));
-    public static Map<Integer, Ed25519Point> HpnGLookup = new HashMap<>();
+    // filled in from many threads at once by the parallel provers and verifiers
+    public static Map<Integer, Ed25519Point> HpnGLookup = new ConcurrentHashMap<>();
+    public static final Metrics.Counter hashes = Metrics.counter("keccak.hashes");
 
     public static Scalar hashToScalar(byte[] a) {
         return new Scalar(scReduce32(fastHash(a)));
     }
 
     public static byte[] fastHash(byte[] a) {
+        hashes.increment();
         try {
             Keccak keccak = keccakPool.borrowObject();
             try {
@@ -84,15 +87,17 @@ public class CryptoUtil {
     }
 
     public static byte[] randomMessage(int len) {
+        return randomMessage(len, random);
+    }
+
+    public static byte[] randomMessage(int len, Random random) {
         byte[] m = new byte[len];
         random.nextBytes(m);
         return m;
     }
 
     public static byte[] toBytes(Ed25519Point[] a) {
-        byte[] r = new byte[0];
-        for (Ed25519Point ai : a) r = ArrayUtils.concat(r, ai.toBytes());
-        return r;
+        return Ed25519Point.encodeAll(a);
     }
 
     public static Scalar sumArray(Scalar[] a) {
@@ -113,21 +118,18 @@ public class CryptoUtil {
     public static Ed25519Point COMb(Scalar[][] x, Scalar r) {
         int m = x.length;
         int n = x[0].length;
-        Ed25519Point A = Ed25519Point.G.scalarMultiply(r);
+        PointAccumulator A = new PointAccumulator(Ed25519Point.G.scalarMultiply(r));
         for (int j = 0; j < m; j++) {
             for (int i = 0; i < n; i++) {
-                A = A.add(getHpnGLookup(j * n + i + 1).scalarMultiply(x[j][i]));
+                A.add(getHpnGLookup(j * n + i + 1).scalarMultiply(x[j][i]));
             }
         }
-        return A;
+        return A.toPoint();
     }
 
     public static Ed25519Point getHpnGLookup(int n) {
-        if (!HpnGLookup.containsKey(n)) {
-            Ed25519Point HpnG = Ed25519Point.hashToPoint(Ed25519Point.G.scalarMultiply(Scalar.intToScalar(n)));
-            HpnGLookup.put(n, HpnG);
-        }
-        return HpnGLookup.get(n);
+        return HpnGLookup.computeIfAbsent(n, i -> Ed25519Point.hashToPoint(Ed25519Point.G.scalarMultiply(Scalar
+                .intToScalar(i))));
     }
 
     public static Ed25519PointPair ENCeg(Ed25519Point keyImage, Scalar secretKey) {
@@ -0,0 +1,162 @@
+package crypto;
+
+import utils.ArrayUtils;
+import utils.ByteUtils;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.security.SecureRandom;
+import java.util.Random;
+
+/**
+ * Deterministic random bit generator built on the Keccak sponge, seeded from SecureRandom.
+ * <p>
+ * Each request absorbs the 32 byte key and a request counter, squeezes the output and then squeezes a new key, so
+ * earlier output cannot be recomputed from the state. The key is refreshed from SecureRandom every
+ * RESEED_INTERVAL requests.
+ * <p>
+ * An instance is not thread safe. Use current() for the generator of the calling thread, or threadLocal() for a
+ * Random that can be shared between threads.
+ */
+public class KeccakRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final int KEY_SIZE = 32;
+    private static final long RESEED_INTERVAL = 1 << 20;
+
+    private static final SecureRandom seeder = new SecureRandom();
+    private static final ThreadLocal<KeccakRandom> current = ThreadLocal.withInitial(KeccakRandom::new);
+    private static final Random threadLocal = new Random() {
+        @Override
+        public void nextBytes(byte[] bytes) {
+            current().nextBytes(bytes);
+        }
+
+        @Override
+        protected int next(int bits) {
+            return current().next(bits);
+        }
+    };
+
+    private final transient Keccak sponge = new Keccak(256);
+    private final transient byte[] key = new byte[KEY_SIZE];
+    private final boolean reseed;
+    private long requests;
+
+    /**
+     * Creates a generator seeded from SecureRandom
+     */
+    public KeccakRandom() {
+        this(seed(), true);
+    }
+
+    /**
+     * Creates a generator whose output is fully determined by the seed and never reseeded
+     *
+     * @param seed The seed, any length
+     */
+    public KeccakRandom(byte[] seed) {
+        this(seed, false);
+    }
+
+    private KeccakRandom(byte[] seed, boolean reseed) {
+        this.reseed = reseed;
+        sponge.reset();
+        sponge.update(seed);
+        sponge.digest(key);
+    }
+
+    /**
+     * Derives the nonce generator of a prover from the secrets and statement it proves, hedged with fresh entropy.
+     * Nonces differ for different inputs even if the entropy source fails, and a seeded entropy source makes the
+     * proof reproducible.
+     *
+     * @param entropy The entropy source, 32 bytes are drawn from it
+     * @param inputs  The secrets and transcript of the proof
+     * @return The nonce generator
+     */
+    public static KeccakRandom derive(Random entropy, byte[]... inputs) {
+        byte[] seed = new byte[KEY_SIZE];
+        entropy.nextBytes(seed);
+        for (byte[] input : inputs) seed = ArrayUtils.concat(seed, ByteUtils.intToBytes(input.length), input);
+        return new KeccakRandom(seed);
+    }
+
+    /**
+     * Derives one generator per task before the tasks are handed to other threads, so the entropy source is only
+     * drawn from on the calling thread and in index order. A seeded source then gives the same generator to each
+     * index whichever thread runs it.
+     *
+     * @param entropy The entropy source, 32 bytes are drawn from it per generator
+     * @param count   The number of tasks
+     * @return The generator of each task
+     */
+    public static KeccakRandom[] deriveEach(Random entropy, int count) {
+        KeccakRandom[] generators = new KeccakRandom[count];
+        for (int i = 0; i < count; i++) generators[i] = derive(entropy, ByteUtils.intToBytes(i));
+        return generators;
+    }
+
+    /**
+     * Gets the generator of the calling thread
+     */
+    public static KeccakRandom current() {
+        return current.get();
+    }
+
+    /**
+     * Gets a Random that draws from the generator of whichever thread calls it
+     */
+    public static Random threadLocal() {
+        return threadLocal;
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        if (reseed && requests % RESEED_INTERVAL == RESEED_INTERVAL - 1) mix(seed());
+
+        sponge.reset();
+        sponge.update(key);
+        sponge.update(ByteUtils.longToBytes(requests++));
+        sponge.digest(bytes);
+        sponge.digest(key);
+    }
+
+    @Override
+    protected int next(int bits) {
+        byte[] b = new byte[4];
+        nextBytes(b);
+        int r = (b[0] & 0xff) | (b[1] & 0xff) << 8 | (b[2] & 0xff) << 16 | (b[3] & 0xff) << 24;
+        return r >>> (32 - bits);
+    }
+
+    /**
+     * Mixes the seed into the state, like SecureRandom.setSeed it supplements rather than replaces the state
+     */
+    @Override
+    public void setSeed(long seed) {
+        // called by the Random constructor before the fields are initialized
+        if (sponge == null) return;
+        mix(ByteUtils.longToBytes(seed));
+    }
+
+    private void mix(byte[] seed) {
+        sponge.reset();
+        sponge.update(key);
+        sponge.update(seed);
+        sponge.digest(key);
+    }
+
+    private static byte[] seed() {
+        byte[] seed = new byte[KEY_SIZE];
+        seeder.nextBytes(seed);
+        return seed;
+    }
+
+    /* Random is serializable, but the key must not leave the process and a generator without it cannot be restored */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        throw new NotSerializableException(KeccakRandom.class.getName());
+    }
+
+}
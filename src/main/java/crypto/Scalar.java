@@ -6,6 +6,7 @@ import utils.HexEncoder;
 
 import java.math.BigInteger;
 import java.util.Arrays;
+import java.util.Random;
 
 import static crypto.CryptoUtil.*;
 
@@ -35,10 +36,35 @@ public class Scalar {
     }
 
     public static Scalar randomScalar() {
-        byte[] s = new byte[32];
-        random.nextBytes(s);
-        s = scReduce32(s);
-        return new Scalar(s);
+        return randomScalar(KeccakRandom.current());
+    }
+
+    /**
+     * Draws 64 random bytes and reduces them mod l, which leaves no measurable bias
+     */
+    public static Scalar randomScalar(Random random) {
+        byte[] wide = new byte[64];
+        random.nextBytes(wide);
+        return new Scalar(new Ed25519EncodedFieldElement(wide).modQ().getRaw());
+    }
+
+    public static Scalar[] randomScalars(int n) {
+        return randomScalars(n, KeccakRandom.current());
+    }
+
+    /**
+     * Draws n random scalars from a single request to the generator
+     */
+    public static Scalar[] randomScalars(int n, Random random) {
+        byte[] wide = new byte[64 * n];
+        random.nextBytes(wide);
+
+        Scalar[] r = new Scalar[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = new Scalar(new Ed25519EncodedFieldElement(Arrays.copyOfRange(wide, 64 * i, 64 * i + 64)).modQ()
+                    .getRaw());
+        }
+        return r;
     }
 
     public static BigInteger[] scalarArrayToBigIntegerArray(Scalar[] a) {
@@ -106,6 +132,41 @@ public class Scalar {
                 .bytes).multiply(getBigIntegerFromUnsignedLittleEndianByteArray(this.bytes)).mod(l).toByteArray()));
     }
 
+    /**
+     * Computes this * b + c with a single reduction
+     */
+    public Scalar muladd(Scalar b, Scalar c) {
+        return new Scalar(toEd25519EncodedFieldElement().multiplyAndAddModQ(b.toEd25519EncodedFieldElement(), c
+                .toEd25519EncodedFieldElement()).getRaw());
+    }
+
+    /**
+     * Computes c - this * b with a single reduction
+     */
+    public Scalar mulsub(Scalar b, Scalar c) {
+        return negate().muladd(b, c);
+    }
+
+    /**
+     * Computes the inner product of a and b, adding up the full 512 bit products and reducing once at the end
+     */
+    public static Scalar innerProduct(Scalar[] a, Scalar[] b) {
+        if (a.length != b.length)
+            throw new IllegalArgumentException("Vector sizes differ: " + a.length + " and " + b.length);
+
+        long[] accumulator = ScalarLimbs.accumulator();
+        long[] limbs = new long[2 * ScalarLimbs.LIMBS];
+        for (int i = 0; i < a.length; i++) {
+            ScalarLimbs.load(a[i].bytes, limbs, 0);
+            ScalarLimbs.load(b[i].bytes, limbs, ScalarLimbs.LIMBS);
+            ScalarLimbs.accumulateProduct(limbs, 0, limbs, ScalarLimbs.LIMBS, accumulator);
+        }
+        // the reduction divides by the Montgomery radix, which the conversion into Montgomery form multiplies back
+        ScalarLimbs.reduceAccumulator(accumulator, limbs, 0);
+        ScalarLimbs.toMontgomery(limbs, 0, limbs, 0);
+        return new Scalar(ScalarLimbs.store(limbs, 0));
+    }
+
     public Scalar pow(int b) {
         Scalar result = Scalar.ONE;
         for (int i = 0; i < b; i++) {
@@ -114,4 +175,62 @@ public class Scalar {
         return result;
     }
 
+    /**
+     * Computes the inverse mod l as this^(l-2), with Montgomery multiplications on limbs instead of BigInteger
+     *
+     * @throws ArithmeticException if the scalar is zero
+     */
+    public Scalar invert() {
+        long[] a = new long[ScalarLimbs.LIMBS];
+        ScalarLimbs.load(bytes, a, 0);
+        ScalarLimbs.toMontgomery(a, 0, a, 0);
+        if (ScalarLimbs.isZero(a, 0)) throw new ArithmeticException("Zero has no inverse mod l");
+
+        ScalarLimbs.invert(a, 0, a, 0);
+        ScalarLimbs.fromMontgomery(a, 0, a, 0);
+        return new Scalar(ScalarLimbs.store(a, 0));
+    }
+
+    /**
+     * Inverts every scalar with a single inversion and 3(n-1) multiplications (Montgomery's trick)
+     *
+     * @throws ArithmeticException if any scalar is zero
+     */
+    public static Scalar[] invertAll(Scalar[] a) {
+        int n = a.length;
+        if (n == 0) return new Scalar[0];
+
+        // the values and prefix[i] = a[0] * ... * a[i], all in Montgomery form
+        int limbs = ScalarLimbs.LIMBS;
+        long[] values = new long[n * limbs];
+        long[] prefix = new long[n * limbs];
+        for (int i = 0; i < n; i++) {
+            ScalarLimbs.load(a[i].bytes, values, i * limbs);
+            ScalarLimbs.toMontgomery(values, i * limbs, values, i * limbs);
+        }
+        System.arraycopy(values, 0, prefix, 0, limbs);
+        for (int i = 1; i < n; i++)
+            ScalarLimbs.montgomeryMultiply(prefix, (i - 1) * limbs, values, i * limbs, prefix, i * limbs);
+        if (ScalarLimbs.isZero(prefix, (n - 1) * limbs)) throw new ArithmeticException("Zero has no inverse mod l");
+
+        Scalar[] r = new Scalar[n];
+        long[] inverse = new long[limbs];
+        long[] element = new long[limbs];
+        ScalarLimbs.invert(prefix, (n - 1) * limbs, inverse, 0);
+        for (int i = n - 1; i >= 0; i--) {
+            if (i > 0) ScalarLimbs.montgomeryMultiply(inverse, 0, prefix, (i - 1) * limbs, element, 0);
+            else System.arraycopy(inverse, 0, element, 0, limbs);
+            ScalarLimbs.fromMontgomery(element, 0, element, 0);
+            r[i] = new Scalar(ScalarLimbs.store(element, 0));
+            if (i > 0) ScalarLimbs.montgomeryMultiply(inverse, 0, values, i * limbs, inverse, 0);
+        }
+        return r;
+    }
+
+    /* -this mod l, without a division */
+    private Scalar negate() {
+        BigInteger a = toBigInteger();
+        return a.signum() == 0 ? ZERO : new Scalar(ensure32BytesAndConvertToLittleEndian(l.subtract(a).toByteArray()));
+    }
+
 }
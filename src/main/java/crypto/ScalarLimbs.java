@@ -0,0 +1,281 @@
+package crypto;
+
+import java.math.BigInteger;
+
+/**
+ * Arithmetic mod l on scalars stored as 4 little endian 64 bit limbs in a long array, without allocating.
+ * <p>
+ * Multiplication is Montgomery multiplication with R = 2^256, computed on 32 bit digits so every partial product
+ * fits in an unsigned long. Values in Montgomery form are x * R mod l; addition and subtraction are the same in
+ * either form. Every value is kept fully reduced, below l.
+ */
+final class ScalarLimbs {
+
+    static final int LIMBS = 4;
+
+    private static final int DIGITS = 2 * LIMBS;
+    private static final long MASK = 0xffffffffL;
+
+    private static final long[] L = toLimbs(CryptoUtil.l);
+    private static final long[] L_DIGITS = new long[DIGITS];
+    // -l^-1 mod 2^32
+    private static final long L_INVERSE = BigInteger.ONE.shiftLeft(32).subtract(CryptoUtil.l.modInverse(BigInteger
+            .ONE.shiftLeft(32))).longValue();
+    // R^2 mod l converts into Montgomery form, 1 converts out of it
+    private static final long[] R_SQUARED = toLimbs(BigInteger.ONE.shiftLeft(512).mod(CryptoUtil.l));
+    private static final long[] ONE = toLimbs(BigInteger.ONE);
+    static final long[] MONTGOMERY_ONE = toLimbs(BigInteger.ONE.shiftLeft(256).mod(CryptoUtil.l));
+    // a^(l-2) = a^-1 mod l
+    private static final long[] INVERT_EXPONENT = toLimbs(CryptoUtil.l.subtract(BigInteger.valueOf(2)));
+    private static final int INVERT_WINDOW = 4;
+
+    static {
+        for (int i = 0; i < DIGITS; i++) L_DIGITS[i] = digit(L, 0, i);
+    }
+
+    private ScalarLimbs() {
+    }
+
+    /**
+     * Gets the scratch space the product accumulator needs, enough for 2^32 products
+     */
+    static long[] accumulator() {
+        return new long[2 * DIGITS + 1];
+    }
+
+    /* r = a + b mod l */
+    static void add(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long x = a[ai + i];
+            long sum = x + b[bi + i] + carry;
+            carry = (Long.compareUnsigned(sum, x) < 0 || (carry == 1 && sum == x)) ? 1 : 0;
+            r[ri + i] = sum;
+        }
+        // both values are below l < 2^253, so the sum cannot carry out of the top limb
+        if (!lessThanL(r, ri)) subtractL(r, ri);
+    }
+
+    /* r = a - b mod l */
+    static void subtract(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long x = a[ai + i];
+            long y = b[bi + i];
+            long difference = x - y - borrow;
+            borrow = (Long.compareUnsigned(x, y) < 0 || (borrow == 1 && x == y)) ? 1 : 0;
+            r[ri + i] = difference;
+        }
+        if (borrow != 0) {
+            long carry = 0;
+            for (int i = 0; i < LIMBS; i++) {
+                long x = r[ri + i];
+                long sum = x + L[i] + carry;
+                carry = (Long.compareUnsigned(sum, x) < 0 || (carry == 1 && sum == x)) ? 1 : 0;
+                r[ri + i] = sum;
+            }
+        }
+    }
+
+    /* r = a * b * R^-1 mod l, r may be a or b. Unrolled so the digits of a and the running sum stay in registers. */
+    static void montgomeryMultiply(long[] a, int ai, long[] b, int bi, long[] r, int ri) {
+        long a0 = a[ai] & MASK, a1 = a[ai] >>> 32, a2 = a[ai + 1] & MASK, a3 = a[ai + 1] >>> 32;
+        long a4 = a[ai + 2] & MASK, a5 = a[ai + 2] >>> 32, a6 = a[ai + 3] & MASK, a7 = a[ai + 3] >>> 32;
+        long l0 = L_DIGITS[0], l1 = L_DIGITS[1], l2 = L_DIGITS[2], l3 = L_DIGITS[3];
+        long l4 = L_DIGITS[4], l5 = L_DIGITS[5], l6 = L_DIGITS[6], l7 = L_DIGITS[7];
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0, t4 = 0, t5 = 0, t6 = 0, t7 = 0, t8 = 0;
+
+        for (int i = 0; i < DIGITS; i++) {
+            // t += a * b[i]
+            long bDigit = digit(b, bi, i);
+            long x = t0 + a0 * bDigit;
+            t0 = x & MASK;
+            x = t1 + a1 * bDigit + (x >>> 32);
+            t1 = x & MASK;
+            x = t2 + a2 * bDigit + (x >>> 32);
+            t2 = x & MASK;
+            x = t3 + a3 * bDigit + (x >>> 32);
+            t3 = x & MASK;
+            x = t4 + a4 * bDigit + (x >>> 32);
+            t4 = x & MASK;
+            x = t5 + a5 * bDigit + (x >>> 32);
+            t5 = x & MASK;
+            x = t6 + a6 * bDigit + (x >>> 32);
+            t6 = x & MASK;
+            x = t7 + a7 * bDigit + (x >>> 32);
+            t7 = x & MASK;
+            x = t8 + (x >>> 32);
+            t8 = x & MASK;
+            long t9 = x >>> 32;
+
+            // t = (t + m * l) / 2^32, with m chosen so the low digit is zero
+            long m = (t0 * L_INVERSE) & MASK;
+            x = t0 + m * l0;
+            x = t1 + m * l1 + (x >>> 32);
+            t0 = x & MASK;
+            x = t2 + m * l2 + (x >>> 32);
+            t1 = x & MASK;
+            x = t3 + m * l3 + (x >>> 32);
+            t2 = x & MASK;
+            x = t4 + m * l4 + (x >>> 32);
+            t3 = x & MASK;
+            x = t5 + m * l5 + (x >>> 32);
+            t4 = x & MASK;
+            x = t6 + m * l6 + (x >>> 32);
+            t5 = x & MASK;
+            x = t7 + m * l7 + (x >>> 32);
+            t6 = x & MASK;
+            x = t8 + (x >>> 32);
+            t7 = x & MASK;
+            t8 = t9 + (x >>> 32);
+        }
+
+        // below 2l, so subtract l once unless that borrows, selected with a mask instead of a branch
+        long r0 = t0 | t1 << 32, r1 = t2 | t3 << 32, r2 = t4 | t5 << 32, r3 = t6 | t7 << 32;
+        long d0 = r0 - L[0];
+        long borrow = ((~r0 & L[0]) | (~(r0 ^ L[0]) & d0)) >>> 63;
+        long d1 = r1 - L[1] - borrow;
+        borrow = ((~r1 & L[1]) | (~(r1 ^ L[1]) & d1)) >>> 63;
+        long d2 = r2 - L[2] - borrow;
+        borrow = ((~r2 & L[2]) | (~(r2 ^ L[2]) & d2)) >>> 63;
+        long d3 = r3 - L[3] - borrow;
+        borrow = ((~r3 & L[3]) | (~(r3 ^ L[3]) & d3)) >>> 63;
+        long keep = -borrow;
+        r[ri] = (r0 & keep) | (d0 & ~keep);
+        r[ri + 1] = (r1 & keep) | (d1 & ~keep);
+        r[ri + 2] = (r2 & keep) | (d2 & ~keep);
+        r[ri + 3] = (r3 & keep) | (d3 & ~keep);
+    }
+
+    /**
+     * Adds the full 512 bit product a * b to the accumulator, without reducing
+     */
+    static void accumulateProduct(long[] a, int ai, long[] b, int bi, long[] accumulator) {
+        for (int i = 0; i < DIGITS; i++) {
+            long bDigit = digit(b, bi, i);
+            long carry = 0;
+            for (int j = 0; j < DIGITS; j++) {
+                long x = accumulator[i + j] + digit(a, ai, j) * bDigit + carry;
+                accumulator[i + j] = x & MASK;
+                carry = x >>> 32;
+            }
+            for (int k = i + DIGITS; carry != 0; k++) {
+                long x = accumulator[k] + carry;
+                accumulator[k] = x & MASK;
+                carry = x >>> 32;
+            }
+        }
+    }
+
+    /**
+     * Reduces the accumulated products to r = sum * R^-1 mod l and clears the accumulator. For products of values in
+     * Montgomery form the result is the sum of products in Montgomery form.
+     */
+    static void reduceAccumulator(long[] accumulator, long[] r, int ri) {
+        for (int i = 0; i < DIGITS; i++) {
+            long m = (accumulator[i] * L_INVERSE) & MASK;
+            long carry = 0;
+            for (int j = 0; j < DIGITS; j++) {
+                long x = accumulator[i + j] + m * L_DIGITS[j] + carry;
+                accumulator[i + j] = x & MASK;
+                carry = x >>> 32;
+            }
+            for (int k = i + DIGITS; carry != 0; k++) {
+                long x = accumulator[k] + carry;
+                accumulator[k] = x & MASK;
+                carry = x >>> 32;
+            }
+        }
+
+        // the quotient is below (products / 16 + 1) * l, so it fits in the top limbs plus the spare digit
+        long top = accumulator[2 * DIGITS];
+        for (int i = 0; i < LIMBS; i++) r[ri + i] = accumulator[DIGITS + 2 * i] | accumulator[DIGITS + 2 * i + 1] << 32;
+        while (top != 0 || !lessThanL(r, ri)) {
+            if (subtractL(r, ri)) top--;
+        }
+        for (int i = 0; i < accumulator.length; i++) accumulator[i] = 0;
+    }
+
+    /**
+     * r = a^-1 mod l for a in Montgomery form, as a^(l-2) with a fixed 4 bit window. The exponent is public and
+     * montgomeryMultiply does not branch on its operands, so the same sequence of operations runs for every value.
+     */
+    static void invert(long[] a, int ai, long[] r, int ri) {
+        int size = 1 << INVERT_WINDOW;
+        long[] table = new long[size * LIMBS];
+        System.arraycopy(MONTGOMERY_ONE, 0, table, 0, LIMBS);
+        for (int i = 1; i < size; i++) montgomeryMultiply(table, (i - 1) * LIMBS, a, ai, table, i * LIMBS);
+
+        long[] result = MONTGOMERY_ONE.clone();
+        int perLimb = 64 / INVERT_WINDOW;
+        for (int w = LIMBS * perLimb - 1; w >= 0; w--) {
+            for (int i = 0; i < INVERT_WINDOW; i++) montgomeryMultiply(result, 0, result, 0, result, 0);
+            int digit = (int) (INVERT_EXPONENT[w / perLimb] >>> (w % perLimb * INVERT_WINDOW)) & (size - 1);
+            montgomeryMultiply(result, 0, table, digit * LIMBS, result, 0);
+        }
+        System.arraycopy(result, 0, r, ri, LIMBS);
+    }
+
+    static boolean isZero(long[] a, int ai) {
+        long bits = 0;
+        for (int i = 0; i < LIMBS; i++) bits |= a[ai + i];
+        return bits == 0;
+    }
+
+    static void toMontgomery(long[] a, int ai, long[] r, int ri) {
+        montgomeryMultiply(a, ai, R_SQUARED, 0, r, ri);
+    }
+
+    static void fromMontgomery(long[] a, int ai, long[] r, int ri) {
+        montgomeryMultiply(a, ai, ONE, 0, r, ri);
+    }
+
+    /* Loads 32 little endian bytes */
+    static void load(byte[] bytes, long[] r, int ri) {
+        for (int i = 0; i < LIMBS; i++) {
+            long limb = 0;
+            for (int j = 7; j >= 0; j--) limb = limb << 8 | (bytes[8 * i + j] & 0xff);
+            r[ri + i] = limb;
+        }
+    }
+
+    /* Stores as 32 little endian bytes */
+    static byte[] store(long[] a, int ai) {
+        byte[] bytes = new byte[8 * LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            long limb = a[ai + i];
+            for (int j = 0; j < 8; j++) bytes[8 * i + j] = (byte) (limb >>> (8 * j));
+        }
+        return bytes;
+    }
+
+    private static long digit(long[] a, int ai, int i) {
+        return (a[ai + (i >> 1)] >>> ((i & 1) << 5)) & MASK;
+    }
+
+    private static boolean lessThanL(long[] a, int ai) {
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            int cmp = Long.compareUnsigned(a[ai + i], L[i]);
+            if (cmp != 0) return cmp < 0;
+        }
+        return false;
+    }
+
+    /* a -= l, returning whether it borrowed out of the top limb */
+    private static boolean subtractL(long[] a, int ai) {
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long x = a[ai + i];
+            long difference = x - L[i] - borrow;
+            borrow = (Long.compareUnsigned(x, L[i]) < 0 || (borrow == 1 && x == L[i])) ? 1 : 0;
+            a[ai + i] = difference;
+        }
+        return borrow != 0;
+    }
+
+    private static long[] toLimbs(BigInteger a) {
+        long[] r = new long[LIMBS];
+        for (int i = 0; i < LIMBS; i++) r[i] = a.shiftRight(64 * i).longValue();
+        return r;
+    }
+}
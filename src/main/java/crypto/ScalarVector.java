@@ -0,0 +1,228 @@
+package crypto;
+
+/**
+ * A fixed length vector of scalars, with builders for the vectors the range proofs use over and over
+ * <p>
+ * The elements are stored in Montgomery form as 4 limbs each in one long array, so the element wise operations
+ * run in place without allocating per element. Operations that return a vector update this vector and return it,
+ * and slices are views sharing the storage, so copy a vector before changing it when the original is still needed.
+ */
+public class ScalarVector {
+
+    private static final int LIMBS = ScalarLimbs.LIMBS;
+
+    private final long[] limbs;
+    private final int offset;
+    private final int size;
+
+    /**
+     * Creates a vector of zeros
+     */
+    public ScalarVector(int size) {
+        this(new long[size * LIMBS], 0, size);
+    }
+
+    public ScalarVector(Scalar[] elements) {
+        this(elements.length);
+        for (int i = 0; i < size; i++) set(i, elements[i]);
+    }
+
+    private ScalarVector(long[] limbs, int offset, int size) {
+        this.limbs = limbs;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Builds 1, base, base^2, ..., base^(n-1), each from the previous one with a single multiplication
+     */
+    public static ScalarVector powers(Scalar base, int n) {
+        ScalarVector r = new ScalarVector(n);
+        if (n == 0) return r;
+        long[] b = toMontgomery(base);
+        System.arraycopy(ScalarLimbs.MONTGOMERY_ONE, 0, r.limbs, 0, LIMBS);
+        for (int i = 1; i < n; i++)
+            ScalarLimbs.montgomeryMultiply(r.limbs, (i - 1) * LIMBS, b, 0, r.limbs, i * LIMBS);
+        return r;
+    }
+
+    /**
+     * Builds the products of the inner product challenges for every index of the folded generators, with one
+     * multiplication per element: s[i] is the product over the rounds j of w[j] where bit (rounds - 1 - j) of i is
+     * set and of wInverse[j] where it is not.
+     *
+     * @param w        The challenge of each round
+     * @param wInverse The inverse of each challenge
+     * @return The 2^rounds products
+     */
+    public static ScalarVector challengeProducts(Scalar[] w, Scalar[] wInverse) {
+        int rounds = w.length;
+        ScalarVector s = new ScalarVector(1 << rounds);
+
+        System.arraycopy(ScalarLimbs.MONTGOMERY_ONE, 0, s.limbs, 0, LIMBS);
+        for (Scalar inverse : wInverse)
+            ScalarLimbs.montgomeryMultiply(s.limbs, 0, toMontgomery(inverse), 0, s.limbs, 0);
+
+        // s[i] differs from s[i - 2^j] in the highest bit j only, which swaps that round's inverse for the challenge
+        for (int j = 0; j < rounds; j++) {
+            long[] swap = toMontgomery(w[rounds - 1 - j]);
+            ScalarLimbs.montgomeryMultiply(swap, 0, swap, 0, swap, 0);
+            int bit = 1 << j;
+            for (int i = bit; i < bit << 1; i++)
+                ScalarLimbs.montgomeryMultiply(s.limbs, (i - bit) * LIMBS, swap, 0, s.limbs, i * LIMBS);
+        }
+        return s;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Scalar get(int i) {
+        long[] r = new long[LIMBS];
+        ScalarLimbs.fromMontgomery(limbs, index(i), r, 0);
+        return new Scalar(ScalarLimbs.store(r, 0));
+    }
+
+    public ScalarVector set(int i, Scalar value) {
+        ScalarLimbs.load(value.bytes, limbs, index(i));
+        ScalarLimbs.toMontgomery(limbs, index(i), limbs, index(i));
+        return this;
+    }
+
+    /**
+     * Copies the elements into new storage
+     */
+    public ScalarVector copy() {
+        long[] r = new long[size * LIMBS];
+        System.arraycopy(limbs, offset, r, 0, r.length);
+        return new ScalarVector(r, 0, size);
+    }
+
+    /**
+     * Gets the elements from (inclusive) to to (exclusive) as a view on this vector, without copying
+     */
+    public ScalarVector slice(int from, int to) {
+        if (from < 0 || to > size || from > to) throw new IndexOutOfBoundsException(from + ".." + to + " of " + size);
+        return new ScalarVector(limbs, offset + from * LIMBS, to - from);
+    }
+
+    /**
+     * this[i] += x[i]
+     */
+    public ScalarVector add(ScalarVector x) {
+        checkSize(x);
+        for (int i = 0; i < size; i++) ScalarLimbs.add(limbs, index(i), x.limbs, x.index(i), limbs, index(i));
+        return this;
+    }
+
+    /**
+     * this[i] -= x[i]
+     */
+    public ScalarVector subtract(ScalarVector x) {
+        checkSize(x);
+        for (int i = 0; i < size; i++) ScalarLimbs.subtract(limbs, index(i), x.limbs, x.index(i), limbs, index(i));
+        return this;
+    }
+
+    /**
+     * this[i] *= a
+     */
+    public ScalarVector scale(Scalar a) {
+        long[] am = toMontgomery(a);
+        for (int i = 0; i < size; i++) ScalarLimbs.montgomeryMultiply(limbs, index(i), am, 0, limbs, index(i));
+        return this;
+    }
+
+    /**
+     * this[i] += a
+     */
+    public ScalarVector addConstant(Scalar a) {
+        long[] am = toMontgomery(a);
+        for (int i = 0; i < size; i++) ScalarLimbs.add(limbs, index(i), am, 0, limbs, index(i));
+        return this;
+    }
+
+    /**
+     * this[i] += a * x[i]
+     */
+    public ScalarVector axpy(Scalar a, ScalarVector x) {
+        checkSize(x);
+        long[] am = toMontgomery(a);
+        long[] product = new long[LIMBS];
+        for (int i = 0; i < size; i++) {
+            ScalarLimbs.montgomeryMultiply(x.limbs, x.index(i), am, 0, product, 0);
+            ScalarLimbs.add(limbs, index(i), product, 0, limbs, index(i));
+        }
+        return this;
+    }
+
+    /**
+     * this[i] *= x[i]
+     */
+    public ScalarVector hadamard(ScalarVector x) {
+        checkSize(x);
+        for (int i = 0; i < size; i++)
+            ScalarLimbs.montgomeryMultiply(limbs, index(i), x.limbs, x.index(i), limbs, index(i));
+        return this;
+    }
+
+    /**
+     * this[i] += x[i] * y[i]
+     */
+    public ScalarVector hadamardAccumulate(ScalarVector x, ScalarVector y) {
+        checkSize(x);
+        checkSize(y);
+        long[] product = new long[LIMBS];
+        for (int i = 0; i < size; i++) {
+            ScalarLimbs.montgomeryMultiply(x.limbs, x.index(i), y.limbs, y.index(i), product, 0);
+            ScalarLimbs.add(limbs, index(i), product, 0, limbs, index(i));
+        }
+        return this;
+    }
+
+    /**
+     * Computes the inner product, adding up the full width products and reducing once at the end
+     */
+    public Scalar innerProduct(ScalarVector x) {
+        checkSize(x);
+        long[] accumulator = ScalarLimbs.accumulator();
+        for (int i = 0; i < size; i++) ScalarLimbs.accumulateProduct(limbs, index(i), x.limbs, x.index(i), accumulator);
+        long[] r = new long[LIMBS];
+        ScalarLimbs.reduceAccumulator(accumulator, r, 0);
+        ScalarLimbs.fromMontgomery(r, 0, r, 0);
+        return new Scalar(ScalarLimbs.store(r, 0));
+    }
+
+    public Scalar sum() {
+        long[] r = new long[LIMBS];
+        for (int i = 0; i < size; i++) ScalarLimbs.add(r, 0, limbs, index(i), r, 0);
+        ScalarLimbs.fromMontgomery(r, 0, r, 0);
+        return new Scalar(ScalarLimbs.store(r, 0));
+    }
+
+    /**
+     * Gets a copy of the elements
+     */
+    public Scalar[] toArray() {
+        Scalar[] r = new Scalar[size];
+        for (int i = 0; i < size; i++) r[i] = get(i);
+        return r;
+    }
+
+    private int index(int i) {
+        return offset + i * LIMBS;
+    }
+
+    private void checkSize(ScalarVector x) {
+        if (x.size != size) throw new IllegalArgumentException("Vector sizes differ: " + size + " and " + x.size);
+    }
+
+    private static long[] toMontgomery(Scalar a) {
+        long[] r = new long[LIMBS];
+        ScalarLimbs.load(a.bytes, r, 0);
+        ScalarLimbs.toMontgomery(r, 0, r, 0);
+        return r;
+    }
+
+}
@@ -4,14 +4,18 @@ import crypto.Scalar;
 import org.bouncycastle.jce.ECNamedCurveTable;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.jce.spec.ECParameterSpec;
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECMultiplier;
 import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
 import utils.HexEncoder;
+import utils.CallSiteProfiler;
+import utils.Metrics;
 
+import java.nio.ByteBuffer;
 import java.security.Security;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
+import java.util.Random;
 
 import static crypto.CryptoUtil.hashToScalar;
 
@@ -31,11 +35,20 @@ public class Ed25519Point {
     public static Ed25519Point ZERO = new Ed25519Point(ecsp.getCurve().getInfinity());
     public static Ed25519Point BASE_POINT = new Ed25519Point(ecsp.getG());
     public static Ed25519Point G = BASE_POINT;
-    public static int scalarMults = 0;
-    public static int scalarBaseMults = 0;
-    public static String lineRecordingSourceFile = null;
-    public static boolean enableLineRecording = false;
-    public static Map<Integer, Integer> lineNumberCallFrequencyMap = new TreeMap<>(Integer::compareTo);
+    public static final Metrics.Counter scalarMults = Metrics.counter("ed25519.scalarMults");
+    public static final Metrics.Counter scalarBaseMults = Metrics.counter("ed25519.scalarBaseMults");
+    public static final Metrics.Counter additions = Metrics.counter("ed25519.additions");
+    public static final Metrics.Counter decompressions = Metrics.counter("ed25519.decompressions");
+    public static final Metrics.Counter encodings = Metrics.counter("ed25519.encodings");
+
+    private static final boolean jacobian = ecsp.getCurve().getCoordinateSystem() == ECCurve.COORD_JACOBIAN || ecsp
+            .getCurve().getCoordinateSystem() == ECCurve.COORD_JACOBIAN_MODIFIED;
+
+    // Compressed encoding: a sign byte, then x
+    public static final int ENCODED_LENGTH = 33;
+
+    // Precomputes a comb table for the base point once, shared by every thread
+    private static final ECMultiplier baseMultiplier = new FixedPointCombMultiplier();
 
     public ECPoint point;
 
@@ -44,6 +57,7 @@ public class Ed25519Point {
     }
 
     public Ed25519Point(byte[] a) {
+        decompressions.increment();
         this.point = ecsp.getCurve().decodePoint(a);
     }
 
@@ -51,6 +65,10 @@ public class Ed25519Point {
         return BASE_POINT.scalarMultiply(Scalar.randomScalar());
     }
 
+    public static Ed25519Point randomPoint(Random random) {
+        return BASE_POINT.scalarMultiply(Scalar.randomScalar(random));
+    }
+
     public static Ed25519Point hashToPoint(byte[] a) {
         return BASE_POINT.scalarMultiply(hashToScalar(a));
     }
@@ -60,34 +78,78 @@ public class Ed25519Point {
     }
 
     public Ed25519Point scalarMultiply(Scalar a) {
-        scalarMults++;
-        if (this == BASE_POINT) scalarBaseMults++;
-
-        if (enableLineRecording) {
-            Optional<StackTraceElement> optionalCaller = Arrays.stream(new Exception().getStackTrace()).filter(e -> e
-                    .getFileName().equals(lineRecordingSourceFile)).findFirst();
-            if (optionalCaller.isPresent()) {
-                StackTraceElement caller = optionalCaller.get();
-                lineNumberCallFrequencyMap.putIfAbsent(caller.getLineNumber(), 0);
-                lineNumberCallFrequencyMap.computeIfPresent(caller.getLineNumber(), (key, oldValue) -> oldValue + 1);
-            }
-        }
+        scalarMults.increment();
+        if (this == BASE_POINT) scalarBaseMults.increment();
 
+        CallSiteProfiler.record(this == BASE_POINT ? "scalarBaseMult" : "scalarMult");
+
+        if (this == BASE_POINT) return new Ed25519Point(baseMultiplier.multiply(point, a.toBigInteger()));
         return new Ed25519Point(point.multiply(a.toBigInteger()));
     }
 
     public Ed25519Point add(Ed25519Point a) {
+        additions.increment();
         return new Ed25519Point(point.add(a.point));
     }
 
     public Ed25519Point sub(Ed25519Point a) {
+        additions.increment();
         return new Ed25519Point(point.subtract(a.point));
     }
 
     public byte[] toBytes() {
+        encodings.increment();
         return point.getEncoded(true);
     }
 
+    /**
+     * Writes the encodings of the points one after another, as toBytes would, normalizing all of them with a single
+     * shared inversion instead of one per point
+     */
+    public static void encodeAll(Ed25519Point[] points, ByteBuffer out) {
+        for (ECPoint point : normalizeAll(points)) {
+            encodings.increment();
+            out.put(point.getEncoded(true));
+        }
+    }
+
+    /**
+     * Gets the encodings of the points one after another, with a single shared inversion
+     */
+    public static byte[] encodeAll(Ed25519Point... points) {
+        ECPoint[] normalized = normalizeAll(points);
+        int length = 0;
+        for (ECPoint point : normalized) length += point.isInfinity() ? 1 : ENCODED_LENGTH;
+
+        ByteBuffer out = ByteBuffer.allocate(length);
+        for (ECPoint point : normalized) {
+            encodings.increment();
+            out.put(point.getEncoded(true));
+        }
+        return out.array();
+    }
+
+    /**
+     * Gets the encoding of each point, with a single shared inversion
+     */
+    public static byte[][] encodeEach(Ed25519Point... points) {
+        ECPoint[] normalized = normalizeAll(points);
+        byte[][] r = new byte[points.length][];
+        for (int i = 0; i < points.length; i++) {
+            encodings.increment();
+            r[i] = normalized[i].getEncoded(true);
+        }
+        return r;
+    }
+
+    /* Affine copies of the points, from one inversion (Montgomery's trick on the Z coordinates) */
+    private static ECPoint[] normalizeAll(Ed25519Point[] points) {
+        ECPoint[] normalized = new ECPoint[points.length];
+        for (int i = 0; i < points.length; i++) normalized[i] = points[i].point;
+        ecsp.getCurve().normalizeAll(normalized);
+        return normalized;
+    }
+
     public boolean satisfiesCurveEquation() {
         return true;
     }
@@ -97,8 +159,27 @@ public class Ed25519Point {
         return HexEncoder.getString(toBytes());
     }
 
+    public boolean isIdentity() {
+        return point.isInfinity();
+    }
+
+    /**
+     * Compares two points by cross multiplying their Jacobian coordinates, X1 * Z2^2 == X2 * Z1^2 and
+     * Y1 * Z2^3 == Y2 * Z1^3, instead of normalizing both with an inversion
+     */
+    public boolean projectiveEquals(Ed25519Point a) {
+        ECPoint p = point, q = a.point;
+        if (p.isInfinity() || q.isInfinity()) return p.isInfinity() && q.isInfinity();
+        if (!jacobian) return p.equals(q);
+
+        ECFieldElement z1 = p.getZCoord(0), z2 = q.getZCoord(0);
+        ECFieldElement z1z1 = z1.square(), z2z2 = z2.square();
+        return p.getXCoord().multiply(z2z2).equals(q.getXCoord().multiply(z1z1)) && p.getYCoord().multiply(z2z2
+                .multiply(z2)).equals(q.getYCoord().multiply(z1z1.multiply(z1)));
+    }
+
     @Override
     public boolean equals(Object obj) {
-        return point.equals(((Ed25519Point) obj).point);
+        return projectiveEquals((Ed25519Point) obj);
     }
 }
@@ -1,7 +1,6 @@
 package crypto.ed25519;
 
 import crypto.Scalar;
-import utils.ArrayUtils;
 import utils.HexEncoder;
 
 public class Ed25519PointPair {
@@ -14,7 +13,19 @@ public class Ed25519PointPair {
     }
 
     public byte[] toBytes() {
-        return ArrayUtils.concat(P1.toBytes(), P2.toBytes());
+        return Ed25519Point.encodeAll(P1, P2);
+    }
+
+    /**
+     * Encodes the pairs one after another, as their toBytes would, with a single shared inversion
+     */
+    public static byte[] toBytes(Ed25519PointPair[] pairs) {
+        Ed25519Point[] points = new Ed25519Point[2 * pairs.length];
+        for (int i = 0; i < pairs.length; i++) {
+            points[2 * i] = pairs[i].P1;
+            points[2 * i + 1] = pairs[i].P2;
+        }
+        return Ed25519Point.encodeAll(points);
     }
 
     public Ed25519PointPair add(Ed25519PointPair a) {
@@ -29,8 +40,12 @@ public class Ed25519PointPair {
         return new Ed25519PointPair(P1.scalarMultiply(n), P2.scalarMultiply(n));
     }
 
+    public boolean isIdentity() {
+        return P1.isIdentity() && P2.isIdentity();
+    }
+
     public boolean equals(Ed25519PointPair obj) {
-        return P1.equals(obj.P1) && P2.equals(obj.P2);
+        return P1.projectiveEquals(obj.P1) && P2.projectiveEquals(obj.P2);
     }
 
     @Override
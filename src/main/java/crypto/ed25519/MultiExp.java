@@ -0,0 +1,123 @@
+package crypto.ed25519;
+
+import crypto.Scalar;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECPoint;
+import utils.Metrics;
+
+import java.math.BigInteger;
+
+/**
+ * Computes sums of the form a[0]*P[0] + a[1]*P[1] + ... + a[n-1]*P[n-1] in one pass.
+ */
+public class MultiExp {
+
+    /**
+     * Below this many terms the interleaved wNAF method (Straus) beats the bucket method.
+     */
+    private static final int PIPPENGER_THRESHOLD = 32;
+
+    /**
+     * Scalars are read as raw 32 byte encodings, which need not be reduced below l.
+     */
+    private static final int SCALAR_BITS = 256;
+
+    public static final Metrics.Histogram sizes = Metrics.histogram("ed25519.multiExpSizes");
+
+    /**
+     * Computes the multi-scalar multiplication of the given points and scalars.
+     *
+     * @param points  The points.
+     * @param scalars The scalars, one for each point.
+     * @return The sum of scalars[i] * points[i].
+     */
+    public static Ed25519Point multiply(Ed25519Point[] points, Scalar[] scalars) {
+        if (points.length != scalars.length)
+            throw new IllegalArgumentException("Expected " + points.length + " scalars, got " + scalars.length);
+
+        ECPoint[] ps = new ECPoint[points.length];
+        for (int i = 0; i < ps.length; i++) ps[i] = points[i].point;
+        return multiply(ps, scalars);
+    }
+
+    /**
+     * Computes the multi-scalar multiplication of the points of a vector, reading each of them once.
+     *
+     * @param points  The points.
+     * @param scalars The scalars, one for each point.
+     * @return The sum of scalars[i] * points[i].
+     */
+    public static Ed25519Point multiply(PointVector points, Scalar[] scalars) {
+        if (points.size() != scalars.length)
+            throw new IllegalArgumentException("Expected " + points.size() + " scalars, got " + scalars.length);
+
+        return multiply(points.toECPoints(), scalars);
+    }
+
+    static Ed25519Point multiply(ECPoint[] points, Scalar[] scalars) {
+        int n = points.length;
+        sizes.record(n);
+        if (n == 0) return Ed25519Point.ZERO;
+
+        if (n < PIPPENGER_THRESHOLD) {
+            BigInteger[] ks = new BigInteger[n];
+            for (int i = 0; i < n; i++) ks[i] = scalars[i].toBigInteger();
+            return new Ed25519Point(ECAlgorithms.sumOfMultiplies(points, ks));
+        }
+
+        return new Ed25519Point(pippenger(points, scalars));
+    }
+
+    /* Bucket method: one pass over every point per c-bit window of the scalars */
+    private static ECPoint pippenger(ECPoint[] points, Scalar[] scalars) {
+        int n = points.length;
+        int c = windowSize(n);
+        int windows = (SCALAR_BITS + c - 1) / c;
+
+        ECPoint infinity = Ed25519Point.ZERO.point;
+        ECPoint result = infinity;
+        ECPoint[] buckets = new ECPoint[(1 << c) - 1];
+
+        for (int w = windows - 1; w >= 0; w--) {
+            result = result.timesPow2(c);
+
+            for (int i = 0; i < n; i++) {
+                int k = window(scalars[i].bytes, w * c, c);
+                if (k == 0) continue;
+                buckets[k - 1] = buckets[k - 1] == null ? points[i] : buckets[k - 1].add(points[i]);
+            }
+
+            // sum of k * bucket[k] via running sums
+            ECPoint running = infinity;
+            ECPoint sum = infinity;
+            for (int k = buckets.length - 1; k >= 0; k--) {
+                if (buckets[k] != null) {
+                    running = running.add(buckets[k]);
+                    buckets[k] = null;
+                }
+                sum = sum.add(running);
+            }
+
+            result = result.add(sum);
+        }
+
+        return result;
+    }
+
+    private static int windowSize(int n) {
+        int log = 31 - Integer.numberOfLeadingZeros(n);
+        return Math.max(4, Math.min(16, log - 1));
+    }
+
+    /* Read width bits of the little endian scalar starting at bitOffset */
+    private static int window(byte[] scalar, int bitOffset, int width) {
+        int value = 0;
+        for (int b = 0; b < width; b++) {
+            int bit = bitOffset + b;
+            if (bit >= 256) break;
+            value |= ((scalar[bit >>> 3] >>> (bit & 7)) & 1) << b;
+        }
+        return value;
+    }
+
+}
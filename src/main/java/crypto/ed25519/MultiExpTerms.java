@@ -0,0 +1,182 @@
+package crypto.ed25519;
+
+import crypto.Scalar;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A linear combination of points which is expected to sum to the identity.
+ * <p>
+ * Verification equations of the form Left == Right are collected as Left - Right, each multiplied by a random
+ * weight, so that the equations of many proofs can be checked together with a single multi-scalar multiplication.
+ * Terms on the same point instance (shared generators such as G or the Hpn lookups) are merged into one term, and
+ * so are terms on the same PointVector instance.
+ */
+public class MultiExpTerms {
+
+    private final Map<Ed25519Point, Integer> index = new IdentityHashMap<>();
+    private final List<Ed25519Point> points = new ArrayList<>();
+    private final List<Scalar> scalars = new ArrayList<>();
+
+    private final Map<PointVector, Integer> vectorIndex = new IdentityHashMap<>();
+    private final List<PointVector> vectors = new ArrayList<>();
+    private final List<Scalar[]> vectorScalars = new ArrayList<>();
+
+    /**
+     * Gets a combination that never sums to the identity, for input rejected before any equation is checked
+     */
+    public static MultiExpTerms rejected() {
+        return new MultiExpTerms().add(Ed25519Point.G, Scalar.randomScalar());
+    }
+
+    /**
+     * Adds scalar * point to the combination
+     */
+    public MultiExpTerms add(Ed25519Point point, Scalar scalar) {
+        Integer i = index.get(point);
+        if (i == null) {
+            index.put(point, points.size());
+            points.add(point);
+            scalars.add(scalar);
+        } else {
+            scalars.set(i, scalars.get(i).add(scalar));
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts scalar * point from the combination
+     */
+    public MultiExpTerms subtract(Ed25519Point point, Scalar scalar) {
+        return add(point, Scalar.ZERO.sub(scalar));
+    }
+
+    /**
+     * Adds scalars[i] * points[i] to the combination for every point of the vector
+     */
+    public MultiExpTerms add(PointVector points, Scalar[] scalars) {
+        if (points.size() != scalars.length)
+            throw new IllegalArgumentException("Expected " + points.size() + " scalars, got " + scalars.length);
+
+        Integer i = vectorIndex.get(points);
+        if (i == null) {
+            vectorIndex.put(points, vectors.size());
+            vectors.add(points);
+            vectorScalars.add(scalars.clone());
+        } else {
+            Scalar[] merged = vectorScalars.get(i);
+            for (int j = 0; j < merged.length; j++) merged[j] = merged[j].add(scalars[j]);
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts scalars[i] * points[i] from the combination for every point of the vector
+     */
+    public MultiExpTerms subtract(PointVector points, Scalar[] scalars) {
+        Scalar[] negated = new Scalar[scalars.length];
+        for (int i = 0; i < scalars.length; i++) negated[i] = Scalar.ZERO.sub(scalars[i]);
+        return add(points, negated);
+    }
+
+    /**
+     * Adds every term of another combination, multiplied by weight
+     */
+    public MultiExpTerms addAll(MultiExpTerms other, Scalar weight) {
+        for (int i = 0; i < other.points.size(); i++) add(other.points.get(i), other.scalars.get(i).mul(weight));
+        for (int i = 0; i < other.vectors.size(); i++) {
+            Scalar[] weighted = other.vectorScalars.get(i).clone();
+            for (int j = 0; j < weighted.length; j++) weighted[j] = weighted[j].mul(weight);
+            add(other.vectors.get(i), weighted);
+        }
+        return this;
+    }
+
+    /**
+     * Adds every term of another combination as is
+     */
+    public MultiExpTerms addAll(MultiExpTerms other) {
+        for (int i = 0; i < other.points.size(); i++) add(other.points.get(i), other.scalars.get(i));
+        for (int i = 0; i < other.vectors.size(); i++) add(other.vectors.get(i), other.vectorScalars.get(i));
+        return this;
+    }
+
+    public int size() {
+        int size = points.size();
+        for (PointVector vector : vectors) size += vector.size();
+        return size;
+    }
+
+    /**
+     * Computes the sum of every term with one multi-scalar multiplication
+     */
+    public Ed25519Point evaluate() {
+        List<ECPoint> p = new ArrayList<>(size());
+        List<Scalar> s = new ArrayList<>(size());
+        for (int i = 0; i < points.size(); i++) {
+            if (points.get(i).point.isInfinity() || scalars.get(i).equals(Scalar.ZERO)) continue;
+            p.add(points.get(i).point);
+            s.add(scalars.get(i));
+        }
+        for (int i = 0; i < vectors.size(); i++) {
+            ECPoint[] vector = vectors.get(i).toECPoints();
+            Scalar[] vectorScalar = vectorScalars.get(i);
+            for (int j = 0; j < vector.length; j++) {
+                if (vector[j].isInfinity() || vectorScalar[j].equals(Scalar.ZERO)) continue;
+                p.add(vector[j]);
+                s.add(vectorScalar[j]);
+            }
+        }
+        return MultiExp.multiply(p.toArray(new ECPoint[0]), s.toArray(new Scalar[0]));
+    }
+
+    public boolean isIdentity() {
+        return evaluate().point.isInfinity();
+    }
+
+    /**
+     * Checks a batch of combinations, each of which must individually sum to the identity.
+     * <p>
+     * All of them are first checked at once. Only if that fails is the batch split in half and each half
+     * checked again, down to the offending entries.
+     *
+     * @param batch The combinations, already weighted by independent random scalars
+     * @return Whether each entry of the batch holds
+     */
+    public static boolean[] verifyEach(List<MultiExpTerms> batch) {
+        boolean[] result = new boolean[batch.size()];
+        bisect(batch, 0, batch.size(), false, result);
+        return result;
+    }
+
+    private static void bisect(List<MultiExpTerms> batch, int from, int to, boolean knownInvalid, boolean[] result) {
+        if (from >= to) return;
+
+        if (!knownInvalid) {
+            MultiExpTerms combined = new MultiExpTerms();
+            for (int i = from; i < to; i++) combined.addAll(batch.get(i));
+
+            if (combined.isIdentity()) {
+                for (int i = from; i < to; i++) result[i] = true;
+                return;
+            }
+        }
+
+        if (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            bisect(batch, from, mid, false, result);
+            // If the whole range failed but its left half holds, the right half cannot hold
+            bisect(batch, mid, to, isAllTrue(result, from, mid), result);
+        }
+    }
+
+    private static boolean isAllTrue(boolean[] a, int from, int to) {
+        for (int i = from; i < to; i++) if (!a[i]) return false;
+        return true;
+    }
+
+}
@@ -0,0 +1,267 @@
+package crypto.ed25519;
+
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECFieldElement;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.custom.djb.Curve25519Field;
+import org.bouncycastle.math.raw.Nat256;
+
+import java.math.BigInteger;
+
+/**
+ * A mutable sum of points, for chains of additions which would otherwise create a new point at every step.
+ * <p>
+ * The sum is kept in Jacobian coordinates (x = X / Z^2, y = Y / Z^3) as 8 word field elements, updated in place with
+ * the BouncyCastle curve25519 field arithmetic. Affine operands, such as points of a PointVector or normalized
+ * points, take the cheaper mixed addition. The sum becomes an Ed25519Point once, with a single inversion, when
+ * toPoint is called. Not thread safe.
+ */
+public class PointAccumulator {
+
+    private static final ECCurve curve = Ed25519Point.ecsp.getCurve();
+    private static final int[] ZERO = Nat256.create();
+    private static final int[] ONE = Nat256.fromBigInteger(BigInteger.ONE);
+    private static final int[] A = Curve25519Field.fromBigInteger(curve.getA().toBigInteger());
+    private static final boolean jacobian = curve.getCoordinateSystem() == ECCurve.COORD_JACOBIAN || curve
+            .getCoordinateSystem() == ECCurve.COORD_JACOBIAN_MODIFIED;
+
+    // the sum, the point at infinity while Z is zero
+    private final int[] X = Nat256.create();
+    private final int[] Y = Nat256.create();
+    private final int[] Z = Nat256.create();
+
+    // the operand being added
+    private final int[] x2 = Nat256.create();
+    private final int[] y2 = Nat256.create();
+    private final int[] z2 = Nat256.create();
+
+    private final int[][] t = new int[9][];
+    private final int[] wide = Nat256.createExt();
+
+    public PointAccumulator() {
+        for (int i = 0; i < t.length; i++) t[i] = Nat256.create();
+    }
+
+    public PointAccumulator(Ed25519Point start) {
+        this();
+        add(start);
+    }
+
+    public PointAccumulator add(Ed25519Point point) {
+        if (load(point.point)) addOperand();
+        return this;
+    }
+
+    public PointAccumulator subtract(Ed25519Point point) {
+        if (load(point.point)) {
+            Curve25519Field.negate(y2, y2);
+            addOperand();
+        }
+        return this;
+    }
+
+    /**
+     * Adds point i of the vector, read straight from its affine limbs
+     */
+    public PointAccumulator add(PointVector points, int i) {
+        if (points.affine(i, x2, y2)) {
+            Nat256.copy(ONE, z2);
+            addOperand();
+        }
+        return this;
+    }
+
+    /**
+     * Adds another sum, leaving it unchanged
+     */
+    public PointAccumulator add(PointAccumulator other) {
+        if (Nat256.isZero(other.Z)) return this;
+        Nat256.copy(other.X, x2);
+        Nat256.copy(other.Y, y2);
+        Nat256.copy(other.Z, z2);
+        addOperand();
+        return this;
+    }
+
+    /**
+     * Doubles the sum
+     */
+    public PointAccumulator twice() {
+        Ed25519Point.additions.increment();
+        if (Nat256.isZero(Z)) return this;
+        if (Nat256.isZero(Y)) {
+            // a point of order two
+            Nat256.copy(ZERO, Z);
+            return this;
+        }
+
+        int[] XX = t[0], YY = t[1], YYYY = t[2], ZZ = t[3], S = t[4], M = t[5], X3 = t[6], Z3 = t[7], u = t[8];
+        square(X, XX);
+        square(Y, YY);
+        square(YY, YYYY);
+        square(Z, ZZ);
+
+        // S = 2 * ((X + YY)^2 - XX - YYYY)
+        Curve25519Field.add(X, YY, S);
+        square(S, S);
+        Curve25519Field.subtract(S, XX, S);
+        Curve25519Field.subtract(S, YYYY, S);
+        Curve25519Field.twice(S, S);
+
+        // M = 3 * XX + a * ZZ^2
+        Curve25519Field.twice(XX, M);
+        Curve25519Field.add(M, XX, M);
+        square(ZZ, u);
+        multiply(A, u, u);
+        Curve25519Field.add(M, u, M);
+
+        // X3 = M^2 - 2 * S
+        square(M, X3);
+        Curve25519Field.twice(S, u);
+        Curve25519Field.subtract(X3, u, X3);
+
+        // Z3 = (Y + Z)^2 - YY - ZZ
+        Curve25519Field.add(Y, Z, Z3);
+        square(Z3, Z3);
+        Curve25519Field.subtract(Z3, YY, Z3);
+        Curve25519Field.subtract(Z3, ZZ, Z3);
+
+        // Y3 = M * (S - X3) - 8 * YYYY
+        Curve25519Field.subtract(S, X3, S);
+        multiply(M, S, Y);
+        Curve25519Field.twice(YYYY, YYYY);
+        Curve25519Field.twice(YYYY, YYYY);
+        Curve25519Field.twice(YYYY, YYYY);
+        Curve25519Field.subtract(Y, YYYY, Y);
+
+        Nat256.copy(X3, X);
+        Nat256.copy(Z3, Z);
+        return this;
+    }
+
+    public boolean isIdentity() {
+        return Nat256.isZero(Z);
+    }
+
+    /**
+     * Gets the sum as an affine point
+     */
+    public Ed25519Point toPoint() {
+        if (Nat256.isZero(Z)) return Ed25519Point.ZERO;
+
+        int[] zInverse = t[0], zInverse2 = t[1], x = t[2], y = t[3];
+        Nat256.copy(Curve25519Field.fromBigInteger(curve.fromBigInteger(Nat256.toBigInteger(Z)).invert()
+                .toBigInteger()), zInverse);
+        square(zInverse, zInverse2);
+        multiply(X, zInverse2, x);
+        multiply(zInverse2, zInverse, zInverse2);
+        multiply(Y, zInverse2, y);
+        return new Ed25519Point(curve.createPoint(Nat256.toBigInteger(x), Nat256.toBigInteger(y)));
+    }
+
+    /* Loads a point as the operand, returning false for the point at infinity */
+    private boolean load(ECPoint point) {
+        if (point.isInfinity()) return false;
+        if (point.isNormalized()) {
+            copy(point.getAffineXCoord(), x2);
+            copy(point.getAffineYCoord(), y2);
+            Nat256.copy(ONE, z2);
+        } else if (jacobian) {
+            copy(point.getXCoord(), x2);
+            copy(point.getYCoord(), y2);
+            copy(point.getZCoord(0), z2);
+        } else {
+            return load(point.normalize());
+        }
+        return true;
+    }
+
+    /* Adds the operand to the sum, with add-2007-bl or madd-2007-bl when the operand is affine */
+    private void addOperand() {
+        Ed25519Point.additions.increment();
+        if (Nat256.isZero(Z)) {
+            Nat256.copy(x2, X);
+            Nat256.copy(y2, Y);
+            Nat256.copy(z2, Z);
+            return;
+        }
+
+        boolean affine = Nat256.isOne(z2);
+        int[] Z1Z1 = t[0], Z2Z2 = t[1], U1 = t[2], U2 = t[3], S1 = t[4], S2 = t[5], I = t[6], J = t[7], u = t[8];
+
+        square(Z, Z1Z1);
+        if (affine) {
+            Nat256.copy(X, U1);
+            Nat256.copy(Y, S1);
+        } else {
+            square(z2, Z2Z2);
+            multiply(X, Z2Z2, U1);
+            multiply(z2, Z2Z2, S1);
+            multiply(Y, S1, S1);
+        }
+        multiply(x2, Z1Z1, U2);
+        multiply(Z, Z1Z1, S2);
+        multiply(y2, S2, S2);
+
+        // H = U2 - U1 and r = S2 - S1, kept in U2 and S2
+        int[] H = U2, r = S2;
+        Curve25519Field.subtract(U2, U1, H);
+        Curve25519Field.subtract(S2, S1, r);
+        if (Nat256.isZero(H)) {
+            if (Nat256.isZero(r)) twice();
+            else Nat256.copy(ZERO, Z);
+            return;
+        }
+
+        // I = (2 * H)^2, J = H * I, r = 2 * (S2 - S1), V = U1 * I
+        Curve25519Field.twice(H, I);
+        square(I, I);
+        multiply(H, I, J);
+        Curve25519Field.twice(r, r);
+        int[] V = U1;
+        multiply(U1, I, V);
+
+        // Z3 = ((Z1 + Z2)^2 - Z1Z1 - Z2Z2) * H, or (Z1 + H)^2 - Z1Z1 - H^2 for an affine operand
+        if (affine) {
+            Curve25519Field.add(Z, H, Z);
+            square(Z, Z);
+            Curve25519Field.subtract(Z, Z1Z1, Z);
+            square(H, u);
+            Curve25519Field.subtract(Z, u, Z);
+        } else {
+            Curve25519Field.add(Z, z2, Z);
+            square(Z, Z);
+            Curve25519Field.subtract(Z, Z1Z1, Z);
+            Curve25519Field.subtract(Z, Z2Z2, Z);
+            multiply(Z, H, Z);
+        }
+
+        // X3 = r^2 - J - 2 * V
+        square(r, X);
+        Curve25519Field.subtract(X, J, X);
+        Curve25519Field.twice(V, u);
+        Curve25519Field.subtract(X, u, X);
+
+        // Y3 = r * (V - X3) - 2 * S1 * J
+        Curve25519Field.subtract(V, X, V);
+        multiply(r, V, Y);
+        multiply(S1, J, u);
+        Curve25519Field.twice(u, u);
+        Curve25519Field.subtract(Y, u, Y);
+    }
+
+    private void multiply(int[] a, int[] b, int[] r) {
+        Nat256.mul(a, b, wide);
+        Curve25519Field.reduce(wide, r);
+    }
+
+    private void square(int[] a, int[] r) {
+        Nat256.square(a, wide);
+        Curve25519Field.reduce(wide, r);
+    }
+
+    private static void copy(ECFieldElement element, int[] r) {
+        Nat256.copy(Curve25519Field.fromBigInteger(element.toBigInteger()), r);
+    }
+
+}
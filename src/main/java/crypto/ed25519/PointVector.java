@@ -0,0 +1,218 @@
+package crypto.ed25519;
+
+import org.bouncycastle.math.ec.ECCurve;
+import org.bouncycastle.math.ec.ECPoint;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * A fixed length vector of points stored as contiguous limbs instead of point objects.
+ * <p>
+ * Every point is kept in affine coordinates, x then y, each as 4 little endian 64 bit limbs, either in a heap long
+ * array or in a direct (off-heap) buffer. Points are normalized in batches when stored, so reading them back gives
+ * affine points which add faster, and encoding them needs no inversion. Slices are views sharing the storage.
+ */
+public class PointVector {
+
+    private static final int LIMBS = 4;
+    private static final int LONGS = 2 * LIMBS;
+    private static final int BYTES = 8 * LIMBS;
+
+    private static final ECCurve curve = Ed25519Point.ecsp.getCurve();
+
+    private final LongBuffer coordinates;
+    private final int size;
+
+    private PointVector(LongBuffer coordinates) {
+        this.coordinates = coordinates;
+        this.size = coordinates.capacity() / LONGS;
+    }
+
+    /**
+     * Creates a vector of points at infinity on the heap
+     */
+    public static PointVector allocate(int size) {
+        return new PointVector(LongBuffer.allocate(size * LONGS));
+    }
+
+    /**
+     * Creates a vector of points at infinity outside the heap, for large or long lived vectors the garbage collector
+     * should not have to look at
+     */
+    public static PointVector allocateDirect(int size) {
+        return new PointVector(ByteBuffer.allocateDirect(size * LONGS * 8).order(ByteOrder.nativeOrder())
+                .asLongBuffer());
+    }
+
+    public static PointVector of(Ed25519Point[] points) {
+        return allocate(points.length).setAll(0, points);
+    }
+
+    public static PointVector ofDirect(Ed25519Point[] points) {
+        return allocateDirect(points.length).setAll(0, points);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isDirect() {
+        return coordinates.isDirect();
+    }
+
+    public Ed25519Point get(int i) {
+        return new Ed25519Point(point(i));
+    }
+
+    public PointVector set(int i, Ed25519Point point) {
+        store(i, point.point.normalize());
+        return this;
+    }
+
+    /**
+     * Stores the points from index from on, normalizing all of them with a single inversion
+     */
+    public PointVector setAll(int from, Ed25519Point[] points) {
+        ECPoint[] normalized = new ECPoint[points.length];
+        for (int i = 0; i < points.length; i++) normalized[i] = points[i].point;
+        curve.normalizeAll(normalized);
+        for (int i = 0; i < points.length; i++) store(from + i, normalized[i]);
+        return this;
+    }
+
+    /**
+     * Gets the points from (inclusive) to to (exclusive) as a view on this vector, without copying
+     */
+    public PointVector slice(int from, int to) {
+        if (from < 0 || to > size || from > to) throw new IndexOutOfBoundsException(from + ".." + to + " of " + size);
+        LongBuffer view = coordinates.duplicate();
+        view.position(from * LONGS);
+        view.limit(to * LONGS);
+        return new PointVector(view.slice());
+    }
+
+    /**
+     * Copies the points onto the heap, which is cheaper to allocate for short lived working copies than direct memory
+     */
+    public PointVector copy() {
+        PointVector r = allocate(size);
+        LongBuffer source = coordinates.duplicate();
+        source.clear();
+        r.coordinates.put(source);
+        r.coordinates.clear();
+        return r;
+    }
+
+    /**
+     * Gets the compressed encoding of a point, the same as Ed25519Point.toBytes, straight from its coordinates
+     */
+    public byte[] toBytes(int i) {
+        Ed25519Point.encodings.increment();
+        int offset = i * LONGS;
+        if (isInfinity(offset)) return new byte[1];
+
+        byte[] r = new byte[BYTES + 1];
+        r[0] = (byte) ((coordinates.get(offset + LIMBS) & 1) == 0 ? 0x02 : 0x03);
+        writeBigEndian(offset, r, 1);
+        return r;
+    }
+
+    /**
+     * Gets the encodings of all the points one after another
+     */
+    public byte[] toBytes() {
+        int length = 0;
+        for (int i = 0; i < size; i++) length += isInfinity(i * LONGS) ? 1 : BYTES + 1;
+
+        byte[] r = new byte[length];
+        int at = 0;
+        for (int i = 0; i < size; i++) {
+            Ed25519Point.encodings.increment();
+            int offset = i * LONGS;
+            if (isInfinity(offset)) {
+                at++;
+                continue;
+            }
+            r[at] = (byte) ((coordinates.get(offset + LIMBS) & 1) == 0 ? 0x02 : 0x03);
+            writeBigEndian(offset, r, at + 1);
+            at += BYTES + 1;
+        }
+        return r;
+    }
+
+    public Ed25519Point[] toArray() {
+        Ed25519Point[] r = new Ed25519Point[size];
+        for (int i = 0; i < size; i++) r[i] = get(i);
+        return r;
+    }
+
+    /* The affine points, for multi-scalar multiplication */
+    ECPoint[] toECPoints() {
+        ECPoint[] r = new ECPoint[size];
+        for (int i = 0; i < size; i++) r[i] = point(i);
+        return r;
+    }
+
+    /* Reads the affine coordinates of a point as 8 little endian words each, returning false for infinity */
+    boolean affine(int i, int[] x, int[] y) {
+        int offset = i * LONGS;
+        if (isInfinity(offset)) return false;
+        for (int limb = 0; limb < LIMBS; limb++) {
+            long xLimb = coordinates.get(offset + limb);
+            long yLimb = coordinates.get(offset + LIMBS + limb);
+            x[2 * limb] = (int) xLimb;
+            x[2 * limb + 1] = (int) (xLimb >>> 32);
+            y[2 * limb] = (int) yLimb;
+            y[2 * limb + 1] = (int) (yLimb >>> 32);
+        }
+        return true;
+    }
+
+    private ECPoint point(int i) {
+        int offset = i * LONGS;
+        if (isInfinity(offset)) return curve.getInfinity();
+        return curve.createPoint(read(offset), read(offset + LIMBS));
+    }
+
+    // (0, 0) is not on the curve (b != 0), so it stands for the point at infinity
+    private void store(int i, ECPoint point) {
+        int offset = i * LONGS;
+        if (point.isInfinity()) {
+            for (int j = 0; j < LONGS; j++) coordinates.put(offset + j, 0);
+            return;
+        }
+        write(offset, point.getAffineXCoord().getEncoded());
+        write(offset + LIMBS, point.getAffineYCoord().getEncoded());
+    }
+
+    private boolean isInfinity(int offset) {
+        for (int j = 0; j < LONGS; j++) if (coordinates.get(offset + j) != 0) return false;
+        return true;
+    }
+
+    /* Stores a 32 byte big endian field element as little endian limbs */
+    private void write(int offset, byte[] bigEndian) {
+        for (int limb = 0; limb < LIMBS; limb++) {
+            long value = 0;
+            for (int j = 0; j < 8; j++) value = value << 8 | (bigEndian[BYTES - 8 * (limb + 1) + j] & 0xff);
+            coordinates.put(offset + limb, value);
+        }
+    }
+
+    private void writeBigEndian(int offset, byte[] r, int at) {
+        for (int limb = 0; limb < LIMBS; limb++) {
+            long value = coordinates.get(offset + limb);
+            for (int j = 0; j < 8; j++) r[at + BYTES - 1 - 8 * limb - j] = (byte) (value >>> (8 * j));
+        }
+    }
+
+    private BigInteger read(int offset) {
+        byte[] bigEndian = new byte[BYTES];
+        writeBigEndian(offset, bigEndian, 0);
+        return new BigInteger(1, bigEndian);
+    }
+
+}
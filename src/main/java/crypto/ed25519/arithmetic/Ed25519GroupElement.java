@@ -3,12 +3,10 @@ package crypto.ed25519.arithmetic;
 import crypto.Scalar;
 import jni.CryptoOpsUtil;
 import utils.ByteUtils;
+import utils.CallSiteProfiler;
+import utils.Metrics;
 
 import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
 
 /**
  * A point on the ED25519 curve which represents a group element.
@@ -25,9 +23,9 @@ import java.util.TreeMap;
  */
 public class Ed25519GroupElement implements Serializable {
 
-    public static int precomps = 0;
-    public static int scalarMults = 0;
-    public static int scalarBaseMults = 0;
+    public static final Metrics.Counter precomps = Metrics.counter("ed25519.groupElement.precomputations");
+    public static final Metrics.Counter scalarMults = Metrics.counter("ed25519.groupElement.scalarMults");
+    public static final Metrics.Counter scalarBaseMults = Metrics.counter("ed25519.groupElement.scalarBaseMults");
     /**
      * h = a * B where a = a[0]+256*a[1]+...+256^31 a[31] and
      * B is this point. If its lookup table has not been precomputed, it
@@ -37,9 +35,6 @@ public class Ed25519GroupElement implements Serializable {
      * @param a The encoded field element.
      * @return The resulting group element.
      */
-    public static String lineRecordingSourceFile = null;
-    public static boolean enableLineRecording = false;
-    public static Map<Integer, Integer> lineNumberCallFrequencyMap = new TreeMap<>((a, b) -> a.compareTo(b));
     private static boolean noNativeLibraryAvailable = false;
 
     //region constructors
@@ -871,19 +866,11 @@ public class Ed25519GroupElement implements Serializable {
 
     public Ed25519GroupElement scalarMultiply(final Ed25519EncodedFieldElement a, boolean useNativeImplementation) {
 
-        if (enableLineRecording) {
-            Optional<StackTraceElement> optionalCaller = Arrays.stream(new Exception().getStackTrace()).filter(e -> e
-                    .getFileName().equals(lineRecordingSourceFile)).findFirst();
-            if (optionalCaller.isPresent()) {
-                StackTraceElement caller = optionalCaller.get();
-                lineNumberCallFrequencyMap.putIfAbsent(caller.getLineNumber(), 0);
-                lineNumberCallFrequencyMap.computeIfPresent(caller.getLineNumber(), (key, oldValue) -> oldValue + 1);
-            }
-        }
+        CallSiteProfiler.record("groupElement.scalarMult");
 
-        scalarMults++;
+        scalarMults.increment();
 
-        if (this == Ed25519Group.BASE_POINT) scalarBaseMults++;
+        if (this == Ed25519Group.BASE_POINT) scalarBaseMults.increment();
 
         try {
             if (!noNativeLibraryAvailable && this == Ed25519Group.BASE_POINT)
@@ -906,7 +893,7 @@ public class Ed25519GroupElement implements Serializable {
                 }
             }
 
-            precomps++;
+            precomps.increment();
             precomputeForScalarMultiplication();
         }
 
@@ -0,0 +1,57 @@
+package ringct;
+
+import crypto.ed25519.MultiExpTerms;
+import ringct.proofs.BulletProof;
+import ringct.signatures.SpendSignature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verifies many transactions together.
+ * <p>
+ * Every curve equation of every transaction (the MultiSignature, Proof2, Proof1 and each output's BulletProof) is
+ * randomly weighted and reduced to terms of one multi-scalar multiplication, with the shared generators merged.
+ * When the combined check fails the transactions are bisected to find which ones are invalid.
+ */
+public class BatchVerifier {
+
+    private final List<MultiExpTerms> transactions = new ArrayList<>();
+
+    /**
+     * Adds a transaction to the batch
+     *
+     * @param ringCT         The confidential transaction
+     * @param spendSignature The spend signature of the transaction
+     * @param bulletProofs   The range proofs of the transaction outputs
+     * @return The index of the transaction in the verdicts returned by verify
+     */
+    public int add(RingCT ringCT, SpendSignature spendSignature, BulletProof[] bulletProofs) {
+        transactions.add(verificationTerms(ringCT, spendSignature, bulletProofs));
+        return transactions.size() - 1;
+    }
+
+    /**
+     * Gets the randomly weighted terms of every curve equation of one transaction
+     */
+    static MultiExpTerms verificationTerms(RingCT ringCT, SpendSignature spendSignature, BulletProof[]
+            bulletProofs) {
+        MultiExpTerms terms = ringCT.verificationTerms(spendSignature);
+        for (BulletProof bulletProof : bulletProofs) terms.addAll(bulletProof.verificationTerms());
+        return terms;
+    }
+
+    public int size() {
+        return transactions.size();
+    }
+
+    /**
+     * Verifies every transaction added so far
+     *
+     * @return Whether each transaction is valid, in the order they were added
+     */
+    public boolean[] verify() {
+        return MultiExpTerms.verifyEach(transactions);
+    }
+
+}
@@ -1,8 +1,13 @@
 package ringct;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
 import ringct.proofs.BulletProof;
+import utils.ConcurrencyUtils;
+
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import static crypto.CryptoUtil.COMp;
 import static crypto.CryptoUtil.hashToScalar;
@@ -38,18 +43,62 @@ public class Coin {
     // Done for each real input and output
     // 1 input, 3 outputs (recipient, change, fee) = 4
     public static Coin newOutput(Scalar amount) {
-        KeyPair amountKey = KeyPair.generateRandom();
+        return newOutput(amount, KeccakRandom.current());
+    }
+
+    public static Coin newOutput(Scalar amount, Random random) {
+        KeyPair amountKey = KeyPair.generateRandom(random);
 
         // Generate pseudo random secret share of this
         // 0 rounds
-        Scalar mask = randomScalar();
+        Scalar mask = randomScalar(random);
 
         Coin coin = new Coin(amountKey, amount, mask);
-        coin.bulletProof = BulletProof.prove(amount, mask);
+        coin.bulletProof = BulletProof.prove(amount, mask, random);
 
         return coin;
     }
 
+    /**
+     * Creates an output for each amount, proving their ranges concurrently on the shared executor
+     *
+     * @param amounts The output amounts
+     * @return The outputs, in the order of the amounts
+     */
+    public static Coin[] newOutputs(Scalar[] amounts) {
+        return ConcurrencyUtils.map(amounts.length, i -> newOutput(amounts[i]), Coin[]::new, ConcurrencyUtils
+                .getExecutor());
+    }
+
+    /**
+     * Creates an output for each amount concurrently, each from its own generator derived from the entropy source
+     *
+     * @param amounts The output amounts
+     * @param entropy The entropy source, only drawn from on the calling thread
+     * @return The outputs, in the order of the amounts
+     */
+    public static Coin[] newOutputs(Scalar[] amounts, Random entropy) {
+        Random[] generators = KeccakRandom.deriveEach(entropy, amounts.length);
+        return ConcurrencyUtils.map(amounts.length, i -> newOutput(amounts[i], generators[i]), Coin[]::new,
+                ConcurrencyUtils.getExecutor());
+    }
+
+    /**
+     * Creates the output on the shared executor, the range proof being the expensive part
+     */
+    public static CompletableFuture<Coin> newOutputAsync(Scalar amount) {
+        return CompletableFuture.supplyAsync(() -> newOutput(amount), ConcurrencyUtils.getExecutor());
+    }
+
+    /**
+     * Creates the output on the shared executor from a generator derived from the entropy source on the calling
+     * thread
+     */
+    public static CompletableFuture<Coin> newOutputAsync(Scalar amount, Random entropy) {
+        Random random = KeccakRandom.derive(entropy);
+        return CompletableFuture.supplyAsync(() -> newOutput(amount, random), ConcurrencyUtils.getExecutor());
+    }
+
     public Scalar getAmount() {
         return amount;
     }
@@ -0,0 +1,129 @@
+package ringct;
+
+import crypto.KeccakRandom;
+import crypto.Scalar;
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.Ed25519PointPair;
+
+import utils.ByteUtils;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static utils.ArrayUtils.concat;
+
+/**
+ * Synthesizes the decoy public keys and commitments that fill a ring around the real ones.
+ * <p>
+ * Decoys are generated in parallel on a ForkJoin pool. Each worker thread draws from its own Keccak generator and
+ * every point is a multiple of the base point, so the shared fixed-base table is used for all of them.
+ */
+public class DecoyGenerator {
+
+    private static final byte[] PUBLIC_KEY_DOMAIN = "decoy public key".getBytes();
+    private static final byte[] COMMITMENT_DOMAIN = "decoy commitment".getBytes();
+
+    private final ForkJoinPool pool;
+    private final byte[] seed;
+
+    public DecoyGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public DecoyGenerator(ForkJoinPool pool) {
+        this(pool, null);
+    }
+
+    /**
+     * Creates a generator whose decoys are determined by the seed and their position in the rings, for reproducible
+     * transactions
+     *
+     * @param seed The seed
+     */
+    public DecoyGenerator(byte[] seed) {
+        this(ForkJoinPool.commonPool(), seed);
+    }
+
+    private DecoyGenerator(ForkJoinPool pool, byte[] seed) {
+        this.pool = pool;
+        this.seed = seed;
+    }
+
+    /**
+     * Creates a random decoy public key
+     * Distributed as the ENCeg(keyImage, privateKey) of a random key pair, which is a pair of uniform points
+     */
+    public Ed25519PointPair nextPublicKey() {
+        return new Ed25519PointPair(randomBaseMultiple(), randomBaseMultiple());
+    }
+
+    /**
+     * Creates a random decoy commitment
+     */
+    public Ed25519Point nextCommitment() {
+        return randomBaseMultiple();
+    }
+
+    /**
+     * Gets the public keys for each input in every ring
+     *
+     * @param realKeys  The real public key of every input
+     * @param ringSize  The ring size
+     * @param ringIndex The secret ring index, where the real keys are placed
+     * @return The public keys for each input in every ring
+     */
+    public Ed25519PointPair[][] publicKeys(Ed25519PointPair[] realKeys, int ringSize, int ringIndex) {
+        int inputs = realKeys.length;
+        Ed25519PointPair[][] publicKeys = new Ed25519PointPair[inputs][ringSize];
+
+        pool.submit(() -> IntStream.range(0, inputs * ringSize).parallel().forEach(slot -> {
+            int input = slot / ringSize;
+            int ring = slot % ringSize;
+            publicKeys[input][ring] = ring == ringIndex ? realKeys[input] : seed == null ? nextPublicKey() :
+                    seededPublicKey(slot);
+        })).join();
+
+        return publicKeys;
+    }
+
+    /**
+     * Gets the commitments for every ring
+     *
+     * @param realCommitment The commitment of the secret ring
+     * @param ringSize       The ring size
+     * @param ringIndex      The secret ring index
+     * @return The commitments for each ring
+     */
+    public Ed25519Point[] commitments(Ed25519Point realCommitment, int ringSize, int ringIndex) {
+        Ed25519Point[] commitments = new Ed25519Point[ringSize];
+
+        pool.submit(() -> IntStream.range(0, ringSize).parallel().forEach(ring ->
+                commitments[ring] = ring == ringIndex ? realCommitment : seed == null ? nextCommitment() :
+                        seededCommitment(ring))).join();
+
+        return commitments;
+    }
+
+    protected ForkJoinPool getPool() {
+        return pool;
+    }
+
+    private Ed25519PointPair seededPublicKey(int slot) {
+        Random slotRandom = new KeccakRandom(concat(seed, PUBLIC_KEY_DOMAIN, ByteUtils.intToBytes(slot)));
+        return new Ed25519PointPair(baseMultiple(slotRandom), baseMultiple(slotRandom));
+    }
+
+    private Ed25519Point seededCommitment(int ring) {
+        return baseMultiple(new KeccakRandom(concat(seed, COMMITMENT_DOMAIN, ByteUtils.intToBytes(ring))));
+    }
+
+    private static Ed25519Point randomBaseMultiple() {
+        return baseMultiple(KeccakRandom.current());
+    }
+
+    private static Ed25519Point baseMultiple(Random random) {
+        return Ed25519Point.G.scalarMultiply(Scalar.randomScalar(random));
+    }
+
+}
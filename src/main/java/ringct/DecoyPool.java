@@ -0,0 +1,68 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.Ed25519PointPair;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * A decoy generator that hands out decoys filled ahead of time, so signing does not wait on decoy generation.
+ * When the pool runs dry decoys are generated on demand.
+ */
+public class DecoyPool extends DecoyGenerator {
+
+    private final Queue<Ed25519PointPair> publicKeys = new ConcurrentLinkedQueue<>();
+    private final Queue<Ed25519Point> commitments = new ConcurrentLinkedQueue<>();
+
+    public DecoyPool() {
+        super();
+    }
+
+    public DecoyPool(ForkJoinPool pool) {
+        super(pool);
+    }
+
+    /**
+     * Generates decoys in parallel and adds them to the pool
+     *
+     * @param publicKeyCount  The number of decoy public keys to add
+     * @param commitmentCount The number of decoy commitments to add
+     */
+    public void fill(int publicKeyCount, int commitmentCount) {
+        getPool().submit(() -> {
+            IntStream.range(0, publicKeyCount).parallel().forEach(i -> publicKeys.add(super.nextPublicKey()));
+            IntStream.range(0, commitmentCount).parallel().forEach(i -> commitments.add(super.nextCommitment()));
+        }).join();
+    }
+
+    /**
+     * Fills the pool in the background
+     */
+    public void fillAsync(int publicKeyCount, int commitmentCount) {
+        getPool().execute(() -> fill(publicKeyCount, commitmentCount));
+    }
+
+    @Override
+    public Ed25519PointPair nextPublicKey() {
+        Ed25519PointPair publicKey = publicKeys.poll();
+        return publicKey != null ? publicKey : super.nextPublicKey();
+    }
+
+    @Override
+    public Ed25519Point nextCommitment() {
+        Ed25519Point commitment = commitments.poll();
+        return commitment != null ? commitment : super.nextCommitment();
+    }
+
+    public int availablePublicKeys() {
+        return publicKeys.size();
+    }
+
+    public int availableCommitments() {
+        return commitments.size();
+    }
+
+}
@@ -0,0 +1,332 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import utils.LockFile;
+import utils.SipHash;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The set of spent key images, used to reject double spends.
+ * <p>
+ * An open addressing (linear probing) hash table kept in a memory-mapped file, with the encoded key images stored
+ * inline in the slots. Each slot also records the height of the block that spent the key image, so the blocks
+ * above a height can be rolled back on a reorg. Lookups run concurrently, inserts and rollbacks take the table
+ * exclusively. A lock file next to the table makes sure only one process writes to it.
+ * <p>
+ * Layout: magic, capacity, count, top height and a 16 byte random salt (8 bytes each), then SLOT_SIZE bytes per
+ * slot. A slot whose first byte is zero is empty, which no compressed point encoding is. Slots are placed by a
+ * SipHash of the key image keyed with the salt, since key images are chosen by whoever creates the outputs and
+ * could otherwise be ground into long probe sequences.
+ */
+public class KeyImageSet implements Closeable {
+
+    public static final int KEY_SIZE = 33;
+
+    private static final long MAGIC = 0x4b4559494d475332L; // "KEYIMGS2"
+    private static final int HEADER_SIZE = 48;
+    private static final int SLOT_SIZE = KEY_SIZE + 8;
+    private static final int MIN_CAPACITY = 1 << 10;
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private final File path;
+    private final Closeable lock;
+    private final ReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+    private RandomAccessFile file;
+    private MappedByteBuffer table;
+    private int capacity;
+    private long count;
+    private long topHeight;
+    private long salt0;
+    private long salt1;
+
+    public KeyImageSet(File path) throws IOException {
+        this.path = path;
+        this.lock = LockFile.tryAcquireLock(new File(path.getPath() + ".lock"));
+        if (lock == null) throw new IOException("Key image set is in use by another process: " + path);
+
+        try {
+            open(MIN_CAPACITY);
+        } catch (IOException e) {
+            lock.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Determines whether the key image was already spent
+     */
+    public boolean contains(Ed25519Point keyImage) {
+        byte[] key = encode(keyImage);
+        rwLock.readLock().lock();
+        try {
+            return find(key) >= 0;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the key images spent in a block.
+     * Nothing is added if any of them was already spent or appears twice in the block.
+     *
+     * @param height    The block height, above the height of every block added before
+     * @param keyImages The key images spent in the block
+     * @return Whether the key images were added
+     */
+    public boolean addBlock(long height, Ed25519Point[] keyImages) throws IOException {
+        byte[][] keys = new byte[keyImages.length][];
+        Set<ByteBuffer> unique = new HashSet<>();
+        for (int i = 0; i < keyImages.length; i++) {
+            keys[i] = encode(keyImages[i]);
+            if (!unique.add(ByteBuffer.wrap(keys[i]))) return false;
+        }
+
+        rwLock.writeLock().lock();
+        try {
+            if (height <= topHeight && count > 0)
+                throw new IllegalArgumentException("Block " + height + " is not above the top block " + topHeight);
+
+            for (byte[] key : keys) if (find(key) >= 0) return false;
+
+            while (count + keys.length > capacity / 4 * 3) resize(capacity * 2);
+            for (byte[] key : keys) insert(key, height);
+            // the block only counts once the header names it, so the slots must be on disk first
+            table.force();
+            count += keys.length;
+            topHeight = height;
+            writeHeader();
+            return true;
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the key images of every block above the height
+     *
+     * @param height The height of the new top block
+     */
+    public void rollback(long height) {
+        rwLock.writeLock().lock();
+        try {
+            // Deleting can shift later entries back into an earlier slot, so rescan a slot after removing from it
+            for (int slot = 0; slot < capacity; ) {
+                if (!isEmpty(slot) && height(slot) > height) {
+                    delete(slot);
+                    count--;
+                } else {
+                    slot++;
+                }
+            }
+            topHeight = Math.min(topHeight, height);
+            writeHeader();
+        } finally {
+            rwLock.writeLock().unlock();
+        }
+    }
+
+    public long size() {
+        rwLock.readLock().lock();
+        try {
+            return count;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    public long getTopHeight() {
+        rwLock.readLock().lock();
+        try {
+            return topHeight;
+        } finally {
+            rwLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        rwLock.writeLock().lock();
+        try {
+            table.force();
+            file.close();
+        } finally {
+            rwLock.writeLock().unlock();
+            lock.close();
+        }
+    }
+
+    private void open(int initialCapacity) throws IOException {
+        file = new RandomAccessFile(path, "rw");
+        if (file.length() == 0) {
+            capacity = initialCapacity;
+            SecureRandom random = new SecureRandom();
+            salt0 = random.nextLong();
+            salt1 = random.nextLong();
+            map();
+            table.putLong(0, MAGIC);
+            writeHeader();
+        } else {
+            capacity = (int) readHeaderLong(8);
+            map();
+            if (table.getLong(0) != MAGIC) throw new IOException("Not a key image set: " + path);
+            count = table.getLong(16);
+            topHeight = table.getLong(24);
+            salt0 = table.getLong(32);
+            salt1 = table.getLong(40);
+            recover();
+        }
+    }
+
+    /* Drops the slots of a block whose insert was cut short before its header was written, and recounts */
+    private void recover() {
+        boolean anyBlock = count > 0;
+        for (int slot = 0; slot < capacity; ) {
+            if (!isEmpty(slot) && (!anyBlock || height(slot) > topHeight)) delete(slot);
+            else slot++;
+        }
+
+        // counted after deleting, as deletes can shift entries around the end of the table
+        count = 0;
+        for (int slot = 0; slot < capacity; slot++) if (!isEmpty(slot)) count++;
+        writeHeader();
+    }
+
+    private long readHeaderLong(int offset) throws IOException {
+        file.seek(offset);
+        return file.readLong();
+    }
+
+    private void map() throws IOException {
+        table = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+    }
+
+    private void writeHeader() {
+        table.putLong(8, capacity);
+        table.putLong(16, count);
+        table.putLong(24, topHeight);
+        table.putLong(32, salt0);
+        table.putLong(40, salt1);
+    }
+
+    /* Rehash into a new file, then swap it in */
+    private void resize(int newCapacity) throws IOException {
+        if (newCapacity > MAX_CAPACITY) throw new IllegalStateException("Key image set is full");
+
+        File resized = new File(path.getPath() + ".resize");
+        try (RandomAccessFile newFile = new RandomAccessFile(resized, "rw")) {
+            newFile.setLength(0);
+            MappedByteBuffer newTable = newFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE +
+                    (long) newCapacity * SLOT_SIZE);
+
+            MappedByteBuffer oldTable = table;
+            int oldCapacity = capacity;
+            table = newTable;
+            capacity = newCapacity;
+
+            byte[] key = new byte[KEY_SIZE];
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                int position = HEADER_SIZE + slot * SLOT_SIZE;
+                if (oldTable.get(position) == 0) continue;
+                for (int i = 0; i < KEY_SIZE; i++) key[i] = oldTable.get(position + i);
+                insert(key, oldTable.getLong(position + KEY_SIZE));
+            }
+
+            table.putLong(0, MAGIC);
+            writeHeader();
+            table.force();
+        }
+
+        file.close();
+        Files.move(resized.toPath(), path.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        file = new RandomAccessFile(path, "rw");
+        map();
+    }
+
+    /* The slot holding the key, or -1 */
+    private int find(byte[] key) {
+        int mask = capacity - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (isEmpty(slot)) return -1;
+            if (keyEquals(slot, key)) return slot;
+        }
+    }
+
+    private void insert(byte[] key, long height) {
+        int mask = capacity - 1;
+        int slot = hash(key) & mask;
+        while (!isEmpty(slot)) slot = (slot + 1) & mask;
+
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        for (int i = 0; i < KEY_SIZE; i++) table.put(position + i, key[i]);
+        table.putLong(position + KEY_SIZE, height);
+    }
+
+    /* Backward shift deletion, so lookups never need tombstones */
+    private void delete(int slot) {
+        int mask = capacity - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; !isEmpty(next); next = (next + 1) & mask) {
+            int home = hash(slotKey(next)) & mask;
+            // move the entry back if the hole lies between its home slot and where it is now
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                copySlot(next, hole);
+                hole = next;
+            }
+        }
+        table.put(HEADER_SIZE + hole * SLOT_SIZE, (byte) 0);
+    }
+
+    private void copySlot(int from, int to) {
+        int source = HEADER_SIZE + from * SLOT_SIZE;
+        int target = HEADER_SIZE + to * SLOT_SIZE;
+        for (int i = 0; i < SLOT_SIZE; i++) table.put(target + i, table.get(source + i));
+    }
+
+    private boolean isEmpty(int slot) {
+        return table.get(HEADER_SIZE + slot * SLOT_SIZE) == 0;
+    }
+
+    private long height(int slot) {
+        return table.getLong(HEADER_SIZE + slot * SLOT_SIZE + KEY_SIZE);
+    }
+
+    private boolean keyEquals(int slot, byte[] key) {
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        for (int i = 0; i < KEY_SIZE; i++) if (table.get(position + i) != key[i]) return false;
+        return true;
+    }
+
+    private byte[] slotKey(int slot) {
+        byte[] key = new byte[KEY_SIZE];
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        for (int i = 0; i < KEY_SIZE; i++) key[i] = table.get(position + i);
+        return key;
+    }
+
+    private int hash(byte[] key) {
+        return (int) SipHash.hash(salt0, salt1, key);
+    }
+
+    private static byte[] encode(Ed25519Point keyImage) {
+        byte[] key = keyImage.toBytes();
+        if (key.length != KEY_SIZE) throw new IllegalArgumentException("Not a valid key image: " + keyImage);
+        return key;
+    }
+
+}
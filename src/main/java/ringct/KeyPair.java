@@ -1,10 +1,13 @@
 package ringct;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
 import crypto.ed25519.Ed25519PointPair;
 import utils.HexEncoder;
 
+import java.util.Random;
+
 import static crypto.CryptoUtil.ENCeg;
 import static crypto.Scalar.randomScalar;
 
@@ -21,7 +24,11 @@ public class KeyPair {
     }
 
     public static KeyPair generateRandom() {
-        SpendKey spendKey = new SpendKey(randomScalar(), randomScalar());
+        return generateRandom(KeccakRandom.current());
+    }
+
+    public static KeyPair generateRandom(Random random) {
+        SpendKey spendKey = new SpendKey(randomScalar(random), randomScalar(random));
         Ed25519Point keyImage = Ed25519Point.G.scalarMultiply(spendKey.keyImagePrivate);
         Ed25519PointPair publicKey = ENCeg(keyImage, spendKey.privateKey);
 
@@ -0,0 +1,216 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.Ed25519PointPair;
+import crypto.ed25519.PointAccumulator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Append-only store of every output that can be a ring member, keyed by its global output index.
+ * <p>
+ * Each output is a fixed size record of its public key pair and commitment, so the record of global index i is at
+ * a known position in the file. The file is memory-mapped in segments and records are read straight from the page
+ * cache. A single thread appends, any number of threads read.
+ * <p>
+ * Layout: an 8 byte magic, an 8 byte output count, then RECORD_SIZE bytes per output (P1, P2, commitment).
+ */
+public class OutputStore implements Closeable {
+
+    public static final int POINT_SIZE = 33;
+    public static final int RECORD_SIZE = 3 * POINT_SIZE;
+
+    private static final long MAGIC = 0x4f55545055545331L; // "OUTPUTS1"
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORDS_PER_SEGMENT = 1 << 20;
+    private static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+
+    private volatile long size;
+
+    public OutputStore(File path) throws IOException {
+        this.file = new RandomAccessFile(path, "rw");
+        this.channel = file.getChannel();
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+
+        long magic = header.getLong(0);
+        if (magic == 0) {
+            header.putLong(0, MAGIC);
+            header.putLong(8, 0);
+        } else if (magic != MAGIC) {
+            close();
+            throw new IOException("Not an output store: " + path);
+        }
+
+        this.size = header.getLong(8);
+    }
+
+    /**
+     * Appends an output
+     *
+     * @param publicKey  The public key pair of the output
+     * @param commitment The amount commitment of the output
+     * @return The global index of the output
+     */
+    public synchronized long append(Ed25519PointPair publicKey, Ed25519Point commitment) throws IOException {
+        long index = size;
+        ByteBuffer record = record(index);
+        writePoint(record, publicKey.P1);
+        writePoint(record, publicKey.P2);
+        writePoint(record, commitment);
+
+        // Publish the record only once it is fully written
+        header.putLong(8, index + 1);
+        size = index + 1;
+        return index;
+    }
+
+    /**
+     * Gets the number of outputs in the store
+     */
+    public long size() {
+        return size;
+    }
+
+    public Ed25519PointPair getPublicKey(long index) throws IOException {
+        ByteBuffer record = existingRecord(index);
+        return new Ed25519PointPair(readPoint(record), readPoint(record));
+    }
+
+    public Ed25519Point getCommitment(long index) throws IOException {
+        ByteBuffer record = existingRecord(index);
+        record.position(record.position() + 2 * POINT_SIZE);
+        return readPoint(record);
+    }
+
+    /**
+     * Resolves the public keys of every ring member
+     *
+     * @param keyOffsets The relative global output indexes of the ring members of each input (vin.key_offsets)
+     * @return The public keys for each input in every ring
+     */
+    public Ed25519PointPair[][] resolvePublicKeys(long[][] keyOffsets) throws IOException {
+        Ed25519PointPair[][] publicKeys = new Ed25519PointPair[keyOffsets.length][];
+        for (int input = 0; input < keyOffsets.length; input++) {
+            long[] absolute = toAbsoluteOffsets(keyOffsets[input]);
+            publicKeys[input] = new Ed25519PointPair[absolute.length];
+            for (int ring = 0; ring < absolute.length; ring++) publicKeys[input][ring] = getPublicKey(absolute[ring]);
+        }
+        return publicKeys;
+    }
+
+    /**
+     * Resolves the commitment of every ring, which is the sum of the commitments of its members across all inputs
+     * minus the sum of the output commitments
+     *
+     * @param keyOffsets          The relative global output indexes of the ring members of each input
+     * @param outputCommitmentSum The sum of the commitments of the transaction outputs
+     * @return The commitments for each ring
+     */
+    public Ed25519Point[] resolveCommitments(long[][] keyOffsets, Ed25519Point outputCommitmentSum) throws
+            IOException {
+        int ringSize = keyOffsets[0].length;
+        PointAccumulator[] sums = new PointAccumulator[ringSize];
+        for (int ring = 0; ring < ringSize; ring++) sums[ring] = new PointAccumulator();
+
+        for (long[] inputOffsets : keyOffsets) {
+            long[] absolute = toAbsoluteOffsets(inputOffsets);
+            for (int ring = 0; ring < ringSize; ring++) sums[ring].add(getCommitment(absolute[ring]));
+        }
+
+        Ed25519Point[] commitments = new Ed25519Point[ringSize];
+        for (int ring = 0; ring < ringSize; ring++) {
+            commitments[ring] = sums[ring].subtract(outputCommitmentSum).toPoint();
+        }
+        return commitments;
+    }
+
+    /**
+     * Converts relative offsets (the first is absolute, every other is the distance to the previous one) into
+     * absolute global output indexes
+     */
+    public static long[] toAbsoluteOffsets(long[] keyOffsets) {
+        long[] absolute = new long[keyOffsets.length];
+        long index = 0;
+        for (int i = 0; i < keyOffsets.length; i++) {
+            index += keyOffsets[i];
+            absolute[i] = index;
+        }
+        return absolute;
+    }
+
+    /**
+     * Converts sorted absolute global output indexes into relative offsets
+     */
+    public static long[] toRelativeOffsets(long[] absolute) {
+        long[] keyOffsets = new long[absolute.length];
+        long previous = 0;
+        for (int i = 0; i < absolute.length; i++) {
+            keyOffsets[i] = absolute[i] - previous;
+            previous = absolute[i];
+        }
+        return keyOffsets;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            header.force();
+            for (MappedByteBuffer segment : segments) segment.force();
+        }
+        file.close();
+    }
+
+    private ByteBuffer existingRecord(long index) throws IOException {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Output " + index + " is not in the store of " + size + " outputs");
+        return record(index);
+    }
+
+    /* A view of the record, positioned at its first byte */
+    private ByteBuffer record(long index) throws IOException {
+        int segment = (int) (index / RECORDS_PER_SEGMENT);
+        int offset = (int) (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+
+        ByteBuffer record = segment(segment).duplicate();
+        record.position(offset);
+        return record;
+    }
+
+    private MappedByteBuffer segment(int segment) throws IOException {
+        if (segment < segments.size()) return segments.get(segment);
+
+        synchronized (this) {
+            while (segments.size() <= segment) {
+                long position = HEADER_SIZE + segments.size() * SEGMENT_SIZE;
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, SEGMENT_SIZE));
+            }
+            return segments.get(segment);
+        }
+    }
+
+    private static void writePoint(ByteBuffer record, Ed25519Point point) {
+        byte[] encoded = point.toBytes();
+        if (encoded.length == POINT_SIZE) record.put(encoded);
+        else record.put(new byte[POINT_SIZE]); // the point at infinity
+    }
+
+    private static Ed25519Point readPoint(ByteBuffer record) {
+        byte[] encoded = new byte[POINT_SIZE];
+        record.get(encoded);
+        return encoded[0] == 0 ? Ed25519Point.ZERO : new Ed25519Point(encoded);
+    }
+
+}
@@ -1,15 +1,24 @@
 package ringct;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
 import crypto.ed25519.Ed25519PointPair;
+import crypto.ed25519.MultiExpTerms;
+import crypto.ed25519.PointAccumulator;
+import crypto.ed25519.PointVector;
 import ringct.proofs.BulletProof;
-import ringct.proofs.OptimizedLogBulletproof;
 import ringct.proofs.Proof2;
 import ringct.signatures.MultiSignature;
 import ringct.signatures.SpendSignature;
+import utils.CallSiteProfiler;
+import utils.ConcurrencyUtils;
+import utils.ProofEvents;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static crypto.CryptoUtil.fastHash;
 import static crypto.CryptoUtil.hashToScalar;
@@ -19,8 +28,10 @@ import static utils.ByteUtils.longToLittleEndianUint32ByteArray;
 public class RingCT {
 
     private Ed25519Point[] keyImages;
-    private Ed25519PointPair[][] publicKeys;
-    private Ed25519Point[] commitments;
+    // P1 and P2 of every ring member, input by input, so large rings are stored as flat limbs
+    private PointVector publicKeys;
+    private PointVector commitments;
+    private int ringSize;
     private Ed25519Point maskedIndex;
     private byte[] message;
 
@@ -28,40 +39,101 @@ public class RingCT {
 
     public RingCT(Ed25519Point[] keyImages, Ed25519PointPair[][] publicKeys, Ed25519Point[] commitments, Ed25519Point
             maskedIndex, BulletProof[] bulletProofs) {
-        this.keyImages = keyImages;
-        this.publicKeys = publicKeys;
-        this.commitments = commitments;
-        this.maskedIndex = maskedIndex;
-        this.message = preHash(bulletProofs);
-        this.subResult = computeSub();
+        this(keyImages, publicKeys, commitments, maskedIndex, bulletProofs, ConcurrencyUtils.DIRECT);
+    }
+
+    private RingCT(Ed25519Point[] keyImages, Ed25519PointPair[][] publicKeys, Ed25519Point[] commitments,
+                   Ed25519Point maskedIndex, BulletProof[] bulletProofs, Executor executor) {
+        try (ProofEvents.Event event = ProofEvents.begin("RingCT.create")) {
+            event.inputs(publicKeys.length).ringSize(publicKeys[0].length);
+            this.keyImages = keyImages;
+            this.publicKeys = flatten(publicKeys);
+            this.commitments = PointVector.of(commitments);
+            this.ringSize = publicKeys[0].length;
+            this.maskedIndex = maskedIndex;
+            this.message = preHash(bulletProofs);
+            this.subResult = event.result(computeSub(executor));
+        }
+    }
+
+    /**
+     * Creates the confidential transaction on the shared executor, hashing each input and accumulating each ring
+     * commitment as its own task
+     */
+    public static CompletableFuture<RingCT> createAsync(Ed25519Point[] keyImages, Ed25519PointPair[][] publicKeys,
+                                                       Ed25519Point[] commitments, Ed25519Point maskedIndex,
+                                                       BulletProof[] bulletProofs) {
+        Executor executor = ConcurrencyUtils.getExecutor();
+        return CompletableFuture.supplyAsync(() -> new RingCT(keyImages, publicKeys, commitments, maskedIndex,
+                bulletProofs, executor), executor);
     }
 
     public boolean verify(SpendSignature spendSignature) {
+        return verifyMultiSignature(spendSignature) && verifyProof2(spendSignature);
+    }
+
+    /**
+     * Verifies the MultiSignature and the Proof2 of the spend signature at the same time on the shared executor
+     */
+    public CompletableFuture<Boolean> verifyAsync(SpendSignature spendSignature) {
+        Executor executor = ConcurrencyUtils.getExecutor();
+        CompletableFuture<Boolean> multiSignature = CompletableFuture.supplyAsync(() -> verifyMultiSignature
+                (spendSignature), executor);
+        CompletableFuture<Boolean> proof2 = CompletableFuture.supplyAsync(() -> verifyProof2(spendSignature),
+                executor);
+        return multiSignature.thenCombine(proof2, (a, b) -> a && b);
+    }
+
+    private boolean verifyMultiSignature(SpendSignature spendSignature) {
         if (!MultiSignature.verify(concat(spendSignature.signature.toBytes(spendSignature.decompositionBase,
                 spendSignature.decompositionExponent), toBytes()), keyImages, spendSignature.multiSig)) {
             System.out.println("MultiSignature.verify failed");
             return false;
         }
+        return true;
+    }
 
+    private boolean verifyProof2(SpendSignature spendSignature) {
         if (!spendSignature.signature.isValid(spendSignature.decompositionBase, subResult.finalCommitments)) {
             System.out.println("Proof2 failed");
             return false;
         }
-
         return true;
     }
 
+    /**
+     * Gets the terms of every curve equation checked by verify, each randomly weighted, which sum to the identity
+     * for a valid signature
+     *
+     * @param spendSignature The spend signature
+     * @return The weighted terms of the MultiSignature, Proof2 and Proof1 equations
+     */
+    public MultiExpTerms verificationTerms(SpendSignature spendSignature) {
+        MultiExpTerms terms = MultiSignature.verificationTerms(concat(spendSignature.signature.toBytes(spendSignature
+                .decompositionBase, spendSignature.decompositionExponent), toBytes()), keyImages, spendSignature.multiSig);
+        terms.addAll(spendSignature.signature.verificationTerms(spendSignature.decompositionBase, subResult
+                .finalCommitments));
+        return terms;
+    }
+
     public Proof2 sign(int ringIndex, Scalar signature, int decompositionBase, int decompositionExponent) {
-        return Proof2.prove(subResult.finalCommitments, ringIndex, signature, decompositionBase, decompositionExponent);
+        return sign(ringIndex, signature, decompositionBase, decompositionExponent, ConcurrencyUtils.DIRECT);
+    }
+
+    public Proof2 sign(int ringIndex, Scalar signature, int decompositionBase, int decompositionExponent, Executor
+            executor) {
+        return sign(ringIndex, signature, decompositionBase, decompositionExponent, executor, KeccakRandom.current());
+    }
+
+    public Proof2 sign(int ringIndex, Scalar signature, int decompositionBase, int decompositionExponent, Executor
+            executor, Random entropy) {
+        return Proof2.prove(subResult.finalCommitments, ringIndex, signature, decompositionBase,
+                decompositionExponent, executor, entropy);
     }
 
     public byte[] toBytes() {
-        byte[] r = new byte[0];
-        for (Ed25519Point keyImage : keyImages) r = concat(r, keyImage.toBytes());
-        for (Ed25519PointPair[] publicKey : publicKeys)
-            for (Ed25519PointPair aPublicKey : publicKey) r = concat(r, aPublicKey.toBytes());
-        for (Ed25519Point commitment1 : commitments) r = concat(r, commitment1.toBytes());
-        r = concat(r, maskedIndex.toBytes());
+        byte[] r = concat(Ed25519Point.encodeAll(keyImages), publicKeys.toBytes(), commitments.toBytes(),
+                maskedIndex.toBytes());
         if (message != null)
             r = concat(r, message);
         return r;
@@ -71,32 +143,55 @@ public class RingCT {
         return subResult;
     }
 
-    private SubResult computeSub() {
-        int inputs = publicKeys.length;
-        int ringSize = publicKeys[0].length;
+    private SubResult computeSub(Executor executor) {
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("RingCT.computeSub");
+             ProofEvents.Event event = ProofEvents.begin("RingCT.computeSub")) {
+            int inputs = publicKeys.size() / (2 * ringSize);
+            event.inputs(inputs).ringSize(ringSize).multiExpSize(inputs + 1);
 
-        byte[] ctBytes = toBytes();
-        Scalar[] finalInputs = new Scalar[inputs];
+            byte[] ctBytes = toBytes();
+
+            Ed25519PointPair[] inputPublicKeys = new Ed25519PointPair[inputs];
+            for (int input = 0; input < inputs; input++) {
+                inputPublicKeys[input] = new Ed25519PointPair(keyImages[input], Ed25519Point.ZERO);
+            }
 
-        Ed25519PointPair[] finalCommitments = new Ed25519PointPair[ringSize];
-        Ed25519PointPair[] inputPublicKeys = new Ed25519PointPair[inputs];
+            Scalar[] finalInputs = ConcurrencyUtils.map(inputs, input -> hashToScalar(concat(keyImages[input].toBytes(),
+                    ctBytes, longToLittleEndianUint32ByteArray(input))), Scalar[]::new, executor);
 
-        for (int input = 0; input < inputs; input++) {
-            inputPublicKeys[input] = new Ed25519PointPair(keyImages[input], Ed25519Point.ZERO);
-            finalInputs[input] = hashToScalar(concat(keyImages[input].toBytes(), ctBytes,
-                    longToLittleEndianUint32ByteArray(input)));
+            CallSiteProfiler.step("finalCommitments");
+            Ed25519PointPair[] finalCommitments = ConcurrencyUtils.map(ringSize, ring -> {
+                PointAccumulator first = new PointAccumulator().add(commitments, ring);
+                PointAccumulator second = new PointAccumulator(maskedIndex);
+
+                for (int input = 0; input < inputs; input++) {
+                    Ed25519PointPair term = publicKey(input, ring).subtract(inputPublicKeys[input]).multiply
+                            (finalInputs[input]);
+                    first.add(term.P1);
+                    second.add(term.P2);
+                }
+                return new Ed25519PointPair(first.toPoint(), second.toPoint());
+            }, Ed25519PointPair[]::new, executor);
+
+            return event.result(new SubResult(finalInputs, finalCommitments));
         }
+    }
 
-        for (int ring = 0; ring < ringSize; ring++) {
-            finalCommitments[ring] = new Ed25519PointPair(commitments[ring], maskedIndex);
+    private Ed25519PointPair publicKey(int input, int ring) {
+        int i = 2 * (input * ringSize + ring);
+        return new Ed25519PointPair(publicKeys.get(i), publicKeys.get(i + 1));
+    }
 
-            for (int input = 0; input < inputs; input++) {
-                finalCommitments[ring] = finalCommitments[ring].add(publicKeys[input][ring].subtract
-                        (inputPublicKeys[input]).multiply(finalInputs[input]));
+    private static PointVector flatten(Ed25519PointPair[][] publicKeys) {
+        Ed25519Point[] points = new Ed25519Point[2 * publicKeys.length * publicKeys[0].length];
+        int i = 0;
+        for (Ed25519PointPair[] publicKey : publicKeys) {
+            for (Ed25519PointPair aPublicKey : publicKey) {
+                points[i++] = aPublicKey.P1;
+                points[i++] = aPublicKey.P2;
             }
         }
-
-        return new SubResult(finalInputs, finalCommitments);
+        return PointVector.of(points);
     }
 
     private byte[] preHash(BulletProof[] bulletProofs) {
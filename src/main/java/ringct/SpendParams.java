@@ -1,14 +1,21 @@
 package ringct;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
 import crypto.ed25519.Ed25519PointPair;
+import crypto.ed25519.PointAccumulator;
 import ringct.proofs.BulletProof;
 import ringct.proofs.Proof2;
 import ringct.signatures.MultiSignature;
 import ringct.signatures.SpendSignature;
+import utils.ConcurrencyUtils;
+import utils.ProofEvents;
 
 import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static utils.ArrayUtils.concat;
 
@@ -31,25 +38,50 @@ public class SpendParams {
     private Ed25519Point maskedIndexPoint;
 
     private RingCT ringCT;
+    private Random random;
+
+    private static final DecoyGenerator defaultDecoys = new DecoyGenerator();
 
     public SpendParams(Coin[] inputs, Coin[] outputs, int decompositionBase, int decompositionExponent) {
-        this.inputs = inputs;
-        this.outputs = outputs;
-        this.bulletProofs = gatherBulletProofs();
+        this(inputs, outputs, decompositionBase, decompositionExponent, defaultDecoys);
+    }
+
+    /**
+     * @param decoys The source of the decoy public keys and commitments, such as a pre-filled DecoyPool
+     */
+    public SpendParams(Coin[] inputs, Coin[] outputs, int decompositionBase, int decompositionExponent,
+                       DecoyGenerator decoys) {
+        this(inputs, outputs, decompositionBase, decompositionExponent, decoys, KeccakRandom.threadLocal());
+    }
 
-        this.decompositionBase = decompositionBase;
-        this.decompositionExponent = decompositionExponent;
+    /**
+     * @param random The source of the ring index and the entropy of the signatures. A seeded source (and a seeded
+     *               decoy generator) gives byte-identical transactions and signatures for the same inputs.
+     */
+    public SpendParams(Coin[] inputs, Coin[] outputs, int decompositionBase, int decompositionExponent,
+                       DecoyGenerator decoys, Random random) {
+        try (ProofEvents.Event event = ProofEvents.begin("SpendParams.create")) {
+            this.random = random;
+            this.inputs = inputs;
+            this.outputs = outputs;
+            this.bulletProofs = gatherBulletProofs();
 
-        this.ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
-        this.ringIndex = (int) Math.floor(Math.random() * ringSize);
+            this.decompositionBase = decompositionBase;
+            this.decompositionExponent = decompositionExponent;
 
-        this.publicKeys = gatherPublicKeys(ringIndex);
-        this.commitments = gatherCommitments(ringIndex);
+            this.ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
+            this.ringIndex = random.nextInt(ringSize);
+            event.inputs(inputs.length).decomposition(decompositionBase, decompositionExponent).ringSize(ringSize);
 
-        this.maskedIndex = gatherMaskedIndex();
-        this.maskedIndexPoint = Ed25519Point.G.scalarMultiply(getMaskedIndex());
+            this.publicKeys = gatherPublicKeys(ringIndex, decoys);
+            this.commitments = gatherCommitments(ringIndex, decoys);
 
-        this.ringCT = new RingCT(getKeyImages(), getPublicKeys(), commitments, maskedIndexPoint, bulletProofs);
+            this.maskedIndex = gatherMaskedIndex();
+            this.maskedIndexPoint = Ed25519Point.G.scalarMultiply(getMaskedIndex());
+
+            this.ringCT = event.result(new RingCT(getKeyImages(), getPublicKeys(), commitments, maskedIndexPoint,
+                    bulletProofs));
+        }
     }
 
     /**
@@ -66,15 +98,50 @@ public class SpendParams {
      * @return The spend signature
      */
     public SpendSignature sign(RingCT ringCT) {
-        Proof2 signature = ringCT.sign(ringIndex, signInputs(ringCT), decompositionBase, decompositionExponent);
-        byte[] signedRingCT = concat(signature.toBytes(decompositionBase, decompositionExponent), ringCT.toBytes());
+        return sign(ringCT, ConcurrencyUtils.DIRECT);
+    }
+
+    /**
+     * Signs the spending params on the shared executor, computing the ring commitments of the Proof2 concurrently
+     *
+     * @return Completes with the spend signature
+     */
+    public CompletableFuture<SpendSignature> signAsync(RingCT ringCT) {
+        return signAsync(ringCT, random);
+    }
+
+    /**
+     * Signs the spending params on the shared executor with a generator derived from the entropy source on the
+     * calling thread, so the source is never drawn from by the executor
+     *
+     * @return Completes with the spend signature
+     */
+    public CompletableFuture<SpendSignature> signAsync(RingCT ringCT, Random entropy) {
+        Executor executor = ConcurrencyUtils.getExecutor();
+        Random random = KeccakRandom.derive(entropy);
+        return CompletableFuture.supplyAsync(() -> sign(ringCT, executor, random), executor);
+    }
+
+    private SpendSignature sign(RingCT ringCT, Executor executor) {
+        return sign(ringCT, executor, random);
+    }
 
-        Scalar[] keyImagePrivates = Arrays.stream(inputs)
-                .map(x -> x.getAmountKey().getSpendKey().keyImagePrivate).toArray(Scalar[]::new);
+    private SpendSignature sign(RingCT ringCT, Executor executor, Random random) {
+        try (ProofEvents.Event event = ProofEvents.begin("SpendParams.sign")) {
+            event.inputs(inputs.length).decomposition(decompositionBase, decompositionExponent).ringSize(ringSize);
+            Proof2 signature = ringCT.sign(ringIndex, signInputs(ringCT), decompositionBase, decompositionExponent,
+                    executor, random);
+            byte[] signedRingCT = concat(signature.toBytes(decompositionBase, decompositionExponent), ringCT
+                    .toBytes());
 
-        MultiSignature.Signature multiSig = MultiSignature.sign(signedRingCT, keyImagePrivates, null);
+            Scalar[] keyImagePrivates = Arrays.stream(inputs)
+                    .map(x -> x.getAmountKey().getSpendKey().keyImagePrivate).toArray(Scalar[]::new);
 
-        return new SpendSignature(decompositionBase, decompositionExponent, maskedIndexPoint, signature, multiSig);
+            MultiSignature.Signature multiSig = MultiSignature.sign(signedRingCT, keyImagePrivates, null, random);
+
+            return event.result(new SpendSignature(decompositionBase, decompositionExponent, maskedIndexPoint,
+                    signature, multiSig));
+        }
     }
 
     /**
@@ -84,13 +151,10 @@ public class SpendParams {
      * @return The signature
      */
     private Scalar signInputs(RingCT ringCT) {
-        Scalar signature = maskedIndex;
-
-        for (int i = 0; i < inputs.length; i++) {
-            signature = signature.add(inputs[i].getAmountKey().getSpendKey().privateKey.mul(ringCT.getSubResult().finalInputs[i]));
-        }
+        Scalar[] privateKeys = new Scalar[inputs.length];
+        for (int i = 0; i < inputs.length; i++) privateKeys[i] = inputs[i].getAmountKey().getSpendKey().privateKey;
 
-        return signature;
+        return Scalar.innerProduct(privateKeys, ringCT.getSubResult().finalInputs).add(maskedIndex);
     }
 
     public BulletProof[] getBulletProofs() {
@@ -130,22 +194,15 @@ public class SpendParams {
      * Only the secret ring contains valid public keys
      *
      * @param ringIndex The secret ring index
+     * @param decoys    The decoy source for every other ring
      * @return The public keys for each input in every ring
      */
-    private Ed25519PointPair[][] gatherPublicKeys(int ringIndex) {
-        Ed25519PointPair[][] publicKeys = new Ed25519PointPair[inputs.length][ringSize];
-
-        for (int input = 0; input < inputs.length; input++) {
-            for (int ring = 0; ring < ringSize; ring++) {
-                if (ring == ringIndex) {
-                    publicKeys[input][ring] = inputs[input].getAmountKey().getPublicKey();
-                } else {
-                    publicKeys[input][ring] = KeyPair.generateRandom().getPublicKey();
-                }
-            }
-        }
+    private Ed25519PointPair[][] gatherPublicKeys(int ringIndex, DecoyGenerator decoys) {
+        Ed25519PointPair[] realKeys = Arrays.stream(inputs)
+                .map(x -> x.getAmountKey().getPublicKey())
+                .toArray(Ed25519PointPair[]::new);
 
-        return publicKeys;
+        return decoys.publicKeys(realKeys, ringSize, ringIndex);
     }
 
     /**
@@ -153,26 +210,16 @@ public class SpendParams {
      * Only the ring at ringIndex contains actual commitments
      *
      * @param ringIndex The secret ring index
+     * @param decoys    The decoy source for every other ring
      * @return The commitments for each ring
      */
-    private Ed25519Point[] gatherCommitments(int ringIndex) {
-        Ed25519Point[] commitments = new Ed25519Point[ringSize];
-
-        for (int ring = 0; ring < ringSize; ring++) {
-            if (ring == ringIndex) {
-                Ed25519Point inputSum = Arrays.stream(inputs)
-                        .map(Coin::getCommitment)
-                        .reduce(Ed25519Point.ZERO, Ed25519Point::add);
-
-                commitments[ring] = Arrays.stream(outputs)
-                        .map(Coin::getCommitment)
-                        .reduce(inputSum, Ed25519Point::sub);
-            } else {
-                commitments[ring] = Ed25519Point.randomPoint();
-            }
-        }
+    private Ed25519Point[] gatherCommitments(int ringIndex, DecoyGenerator decoys) {
+        PointAccumulator sum = new PointAccumulator();
+        for (Coin input : inputs) sum.add(input.getCommitment());
+        for (Coin output : outputs) sum.subtract(output.getCommitment());
+        Ed25519Point realCommitment = sum.toPoint();
 
-        return commitments;
+        return decoys.commitments(realCommitment, ringSize, ringIndex);
     }
 
     /**
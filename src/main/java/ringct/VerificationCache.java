@@ -0,0 +1,145 @@
+package ringct;
+
+import ringct.proofs.BulletProof;
+import ringct.signatures.SpendSignature;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static crypto.CryptoUtil.fastHash;
+import static utils.ArrayUtils.concat;
+
+/**
+ * Remembers which transactions were already verified, so a transaction seen again (on receipt, when building a
+ * block template, when accepting the block) is not verified again.
+ * <p>
+ * Entries are keyed by the hash of the serialized spend signature, RingCT transcript and the bullet proofs supplied
+ * with them, so a hit only vouches for exactly the proofs that were verified. Only successful verifications are
+ * cached, so invalid transactions cannot push valid ones out. The least recently used entry is evicted when the
+ * cache is full, and entries expire after a fixed time.
+ */
+public class VerificationCache {
+
+    private final int maxSize;
+    private final long expiryNanos;
+    private final LongSupplier clock;
+
+    // access ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<ByteBuffer, Long> verifiedAt = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerificationCache(int maxSize, long expiry, TimeUnit unit) {
+        this(maxSize, expiry, unit, System::nanoTime);
+    }
+
+    VerificationCache(int maxSize, long expiry, TimeUnit unit, LongSupplier clock) {
+        this.maxSize = maxSize;
+        this.expiryNanos = unit.toNanos(expiry);
+        this.clock = clock;
+    }
+
+    /**
+     * Verifies the transaction unless it was verified before
+     *
+     * @param ringCT         The confidential transaction
+     * @param spendSignature The spend signature
+     * @param bulletProofs   The range proofs of the transaction outputs
+     * @return Whether the transaction is valid
+     */
+    public boolean verify(RingCT ringCT, SpendSignature spendSignature, BulletProof[] bulletProofs) {
+        ByteBuffer key = key(ringCT, spendSignature, bulletProofs);
+        if (contains(key)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+
+        boolean valid = ringCT.verify(spendSignature);
+        for (int i = 0; valid && i < bulletProofs.length; i++) valid = bulletProofs[i].verify();
+
+        if (valid) put(key);
+        return valid;
+    }
+
+    public void invalidateAll() {
+        synchronized (verifiedAt) {
+            verifiedAt.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (verifiedAt) {
+            return verifiedAt.size();
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private static ByteBuffer key(RingCT ringCT, SpendSignature spendSignature, BulletProof[] bulletProofs) {
+        byte[][] parts = new byte[bulletProofs.length + 2][];
+        parts[0] = spendSignature.toBytes();
+        parts[1] = ringCT.toBytes();
+        for (int i = 0; i < bulletProofs.length; i++) parts[i + 2] = bulletProofs[i].toBytes();
+        return ByteBuffer.wrap(fastHash(concat(parts)));
+    }
+
+    private boolean contains(ByteBuffer key) {
+        long now = clock.getAsLong();
+        synchronized (verifiedAt) {
+            Long time = verifiedAt.get(key);
+            if (time == null) return false;
+            if (now - time < expiryNanos) return true;
+
+            verifiedAt.remove(key);
+            evictions.increment();
+            return false;
+        }
+    }
+
+    private void put(ByteBuffer key) {
+        long now = clock.getAsLong();
+        synchronized (verifiedAt) {
+            verifiedAt.put(key, now);
+
+            Iterator<Map.Entry<ByteBuffer, Long>> leastRecentlyUsed = verifiedAt.entrySet().iterator();
+            while (verifiedAt.size() > maxSize) {
+                leastRecentlyUsed.next();
+                leastRecentlyUsed.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public static class Stats {
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+
+        private Stats(long hits, long misses, long evictions) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "(hits: " + hits + ", misses: " + misses + ", evictions: " + evictions + ")";
+        }
+    }
+
+}
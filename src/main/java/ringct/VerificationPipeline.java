@@ -0,0 +1,339 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.MultiExpTerms;
+import ringct.proofs.BulletProof;
+import ringct.signatures.SpendSignature;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies a stream of transactions on all cores.
+ * <p>
+ * Each transaction goes through four stages: parse the spend signature, resolve the ring members, recompute the
+ * hashes and challenges into multiexp terms, and check the curve equations of a batch of transactions at once.
+ * Every stage runs on its own worker threads and stages are connected by bounded queues, so a slow stage blocks
+ * the ones before it instead of letting work pile up. Closing the pipeline cancels the transactions still in it.
+ */
+public class VerificationPipeline implements Closeable {
+
+    /**
+     * Builds the RingCT of a transaction from its ring members
+     */
+    public interface RingResolver {
+        RingCT resolve(UnverifiedTransaction transaction, SpendSignature spendSignature) throws Exception;
+    }
+
+    /**
+     * A transaction as received, before its spend signature is parsed and its rings resolved
+     */
+    public static class UnverifiedTransaction {
+        public final byte[] spendSignature;
+        public final Ed25519Point[] keyImages;
+        public final long[][] keyOffsets;
+        public final Ed25519Point outputCommitmentSum;
+        public final BulletProof[] bulletProofs;
+
+        public UnverifiedTransaction(byte[] spendSignature, Ed25519Point[] keyImages, long[][] keyOffsets,
+                                     Ed25519Point outputCommitmentSum, BulletProof[] bulletProofs) {
+            this.spendSignature = spendSignature;
+            this.keyImages = keyImages;
+            this.keyOffsets = keyOffsets;
+            this.outputCommitmentSum = outputCommitmentSum;
+            this.bulletProofs = bulletProofs;
+        }
+    }
+
+    /**
+     * Resolves rings from the output store by the relative offsets of the transaction
+     */
+    public static RingResolver fromStore(OutputStore store) {
+        return (transaction, spendSignature) -> new RingCT(transaction.keyImages,
+                store.resolvePublicKeys(transaction.keyOffsets),
+                store.resolveCommitments(transaction.keyOffsets, transaction.outputCommitmentSum),
+                spendSignature.commitment, transaction.bulletProofs);
+    }
+
+    private static final long BATCH_WAIT_MILLIS = 5;
+
+    private final RingResolver resolver;
+    private final int batchSize;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final BlockingQueue<Work> parseQueue;
+    private final BlockingQueue<Work> resolveQueue;
+    private final BlockingQueue<Work> hashQueue;
+    private final BlockingQueue<Work> checkQueue;
+
+    private final Stage parse = new Stage("parse");
+    private final Stage resolve = new Stage("resolve");
+    private final Stage hash = new Stage("hash");
+    private final Stage check = new Stage("check");
+
+    private volatile boolean running = true;
+
+    /**
+     * @param resolver        Resolves the rings of every transaction
+     * @param threadsPerStage The worker threads of each of the four stages
+     * @param queueCapacity   The capacity of the queue in front of each stage
+     * @param batchSize       The most transactions checked in one multiexp
+     */
+    public VerificationPipeline(RingResolver resolver, int threadsPerStage, int queueCapacity, int batchSize) {
+        this(resolver, threadsPerStage, queueCapacity, batchSize, Executors.newFixedThreadPool(4 *
+                threadsPerStage, r -> {
+            Thread thread = new Thread(r, "verification-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param executor Runs the stage workers, it must be able to run 4 * threadsPerStage tasks at the same time
+     */
+    public VerificationPipeline(RingResolver resolver, int threadsPerStage, int queueCapacity, int batchSize,
+                                ExecutorService executor) {
+        this(resolver, threadsPerStage, queueCapacity, batchSize, executor, false);
+    }
+
+    private VerificationPipeline(RingResolver resolver, int threadsPerStage, int queueCapacity, int batchSize,
+                                 ExecutorService executor, boolean ownsExecutor) {
+        this.resolver = resolver;
+        this.batchSize = batchSize;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+
+        this.parseQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.resolveQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.hashQueue = new ArrayBlockingQueue<>(queueCapacity);
+        this.checkQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        for (int i = 0; i < threadsPerStage; i++) {
+            executor.execute(() -> runStage(parse, parseQueue, resolveQueue, this::parse));
+            executor.execute(() -> runStage(resolve, resolveQueue, hashQueue, this::resolve));
+            executor.execute(() -> runStage(hash, hashQueue, checkQueue, this::hash));
+            executor.execute(this::runCheckStage);
+        }
+    }
+
+    /**
+     * Queues a transaction for verification, blocking while the pipeline is full
+     *
+     * @param transaction The transaction
+     * @return Completes with whether the transaction is valid
+     */
+    public CompletableFuture<Boolean> submit(UnverifiedTransaction transaction) throws InterruptedException {
+        if (!running) throw new IllegalStateException("Verification pipeline is closed");
+
+        Work work = new Work(transaction);
+        if (!forward(parseQueue, work)) throw new IllegalStateException("Verification pipeline is closed");
+        // closed while queueing, after the workers drained the queues
+        if (!running) drainQueues();
+        return work.result;
+    }
+
+    /**
+     * Gets the throughput of every stage
+     */
+    public List<Stage> getStages() {
+        return Arrays.asList(parse, resolve, hash, check);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (ownsExecutor) executor.shutdownNow();
+        drainQueues();
+    }
+
+    /* Malformed bytes surface as whatever the cursor or point decoding throws, all of them mean invalid */
+    private boolean parse(Work work) {
+        try {
+            work.spendSignature = SpendSignature.fromBytes(work.transaction.spendSignature);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /* The shape is checked first, so that anything the resolver throws is a failure to look the rings up */
+    private boolean resolve(Work work) throws Exception {
+        if (!hasRingShape(work.transaction)) return false;
+        work.ringCT = resolver.resolve(work.transaction, work.spendSignature);
+        return true;
+    }
+
+    private boolean hash(Work work) {
+        work.terms = BatchVerifier.verificationTerms(work.ringCT, work.spendSignature, work.transaction.bulletProofs);
+        return true;
+    }
+
+    private static boolean hasRingShape(UnverifiedTransaction transaction) {
+        long[][] keyOffsets = transaction.keyOffsets;
+        if (keyOffsets == null || keyOffsets.length == 0 || transaction.keyImages == null ||
+                keyOffsets.length != transaction.keyImages.length) return false;
+        for (long[] ring : keyOffsets) {
+            if (ring == null || ring.length == 0 || ring.length != keyOffsets[0].length) return false;
+        }
+        return true;
+    }
+
+    private void runStage(Stage stage, BlockingQueue<Work> in, BlockingQueue<Work> out, StageFunction function) {
+        Work work = null;
+        try {
+            while (running) {
+                work = in.poll(BATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (work == null) continue;
+
+                long start = System.nanoTime();
+                boolean valid;
+                try {
+                    valid = function.apply(work);
+                } catch (InterruptedException e) {
+                    work.result.completeExceptionally(e);
+                    work = null;
+                    throw e;
+                } catch (Exception e) {
+                    // I/O errors and missing outputs say nothing about whether the transaction is valid
+                    work.result.completeExceptionally(e);
+                    work = null;
+                    continue;
+                } finally {
+                    stage.record(1, System.nanoTime() - start);
+                }
+                if (!valid) {
+                    work.result.complete(false);
+                    work = null;
+                    continue;
+                }
+                if (!forward(out, work)) break;
+                work = null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (work != null) cancel(work);
+            drainQueues();
+        }
+    }
+
+    /* Collect a batch, waiting briefly for more work before checking a partial one */
+    private void runCheckStage() {
+        List<Work> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                Work work = checkQueue.poll(BATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                if (work != null) batch.add(work);
+                if (batch.isEmpty() || (work != null && batch.size() < batchSize)) continue;
+
+                long start = System.nanoTime();
+                try {
+                    List<MultiExpTerms> terms = new ArrayList<>(batch.size());
+                    for (Work w : batch) terms.add(w.terms);
+                    boolean[] valid = MultiExpTerms.verifyEach(terms);
+                    for (int i = 0; i < batch.size(); i++) batch.get(i).result.complete(valid[i]);
+                } catch (RuntimeException | Error e) {
+                    // fail the batch rather than the worker, so the stage keeps running
+                    for (Work w : batch) w.result.completeExceptionally(e);
+                } finally {
+                    check.record(batch.size(), System.nanoTime() - start);
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Work w : batch) cancel(w);
+            drainQueues();
+        }
+    }
+
+    /* Hands work to the next queue, giving up once the pipeline is closed */
+    private boolean forward(BlockingQueue<Work> out, Work work) throws InterruptedException {
+        while (running) {
+            if (out.offer(work, BATCH_WAIT_MILLIS, TimeUnit.MILLISECONDS)) return true;
+        }
+        return false;
+    }
+
+    /* Cancels everything still queued, called on close and by every worker as it exits */
+    private void drainQueues() {
+        for (BlockingQueue<Work> queue : Arrays.asList(parseQueue, resolveQueue, hashQueue, checkQueue)) {
+            Work work;
+            while ((work = queue.poll()) != null) cancel(work);
+        }
+    }
+
+    private static void cancel(Work work) {
+        work.result.completeExceptionally(new CancellationException("Verification pipeline is closed"));
+    }
+
+    /* Returns false for an invalid transaction and throws when it could not be processed */
+    private interface StageFunction {
+        boolean apply(Work work) throws Exception;
+    }
+
+    private static class Work {
+        final UnverifiedTransaction transaction;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        SpendSignature spendSignature;
+        RingCT ringCT;
+        MultiExpTerms terms;
+
+        Work(UnverifiedTransaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+
+    /**
+     * The number of transactions a stage processed and the time its workers were busy
+     */
+    public static class Stage {
+        private final String name;
+        private final LongAdder transactions = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        private void record(int count, long nanos) {
+            transactions.add(count);
+            busyNanos.add(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getTransactions() {
+            return transactions.sum();
+        }
+
+        /**
+         * Gets the transactions per second of busy worker time
+         */
+        public double getThroughput() {
+            long nanos = busyNanos.sum();
+            return nanos == 0 ? 0 : transactions.sum() * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + getTransactions() + " transactions, " + String.format("%.1f", getThroughput()) +
+                    " per second";
+        }
+    }
+
+}
@@ -1,14 +1,27 @@
 package ringct.proofs;
 
-import crypto.CryptoUtil;
+import crypto.KeccakRandom;
 import crypto.Scalar;
+import crypto.ScalarVector;
 import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.MultiExp;
+import crypto.ed25519.MultiExpTerms;
+import crypto.ed25519.PointAccumulator;
+import crypto.ed25519.PointVector;
+import utils.CallSiteProfiler;
+import utils.ConcurrencyUtils;
+import utils.Metrics;
+import utils.ProofEvents;
 
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import static crypto.CryptoUtil.getHpnGLookup;
 import static crypto.CryptoUtil.hashToScalar;
 import static crypto.Scalar.randomScalar;
+import static crypto.Scalar.randomScalars;
 import static utils.ArrayUtils.concat;
 
 public class BulletProof {
@@ -30,21 +43,32 @@ public class BulletProof {
 
     private static Ed25519Point G;
     private static Ed25519Point H;
-    private static Ed25519Point[] Gi;
-    private static Ed25519Point[] Hi;
+    // Long lived, so kept off the heap
+    private static PointVector Gi;
+    private static PointVector Hi;
+
+    // 2^n and <1^n, 2^n> are the same for every proof, copy TWO_N before changing it
+    private static final ScalarVector TWO_N = ScalarVector.powers(Scalar.TWO, N);
+    private static final Scalar ONE_N_DOT_TWO_N = TWO_N.sum();
+
+    public static final Metrics.Histogram proveLatency = Metrics.histogram("BulletProof.prove");
+    public static final Metrics.Histogram verifyLatency = Metrics.histogram("BulletProof.verify");
 
     static {
         // Set the curve base points
         G = Ed25519Point.G;
         H = Ed25519Point.hashToPoint(G);
 
-        Gi = new Ed25519Point[N];
-        Hi = new Ed25519Point[N];
+        Ed25519Point[] g = new Ed25519Point[N];
+        Ed25519Point[] h = new Ed25519Point[N];
 
         for (int i = 0; i < N; i++) {
-            Gi[i] = getHpnGLookup(2 * i);
-            Hi[i] = getHpnGLookup(2 * i + 1);
+            g[i] = getHpnGLookup(2 * i);
+            h[i] = getHpnGLookup(2 * i + 1);
         }
+
+        Gi = PointVector.ofDirect(g);
+        Hi = PointVector.ofDirect(h);
     }
 
     public BulletProof(Ed25519Point V, Ed25519Point A, Ed25519Point S, Ed25519Point T1, Ed25519Point T2, Scalar
@@ -64,397 +88,431 @@ public class BulletProof {
     }
 
     public byte[] toBytes() {
-        byte[] result;
-        result = concat(V.toBytes(), A.toBytes(), S.toBytes(), T1.toBytes(), T2.toBytes(), taux.bytes, mu.bytes);
-        for (Ed25519Point l : L)
-            result = concat(result, l.toBytes());
-        for (Ed25519Point r : R)
-            result = concat(result, r.toBytes());
-        result = concat(result, a.bytes, b.bytes, t.bytes);
-        return result;
+        byte[][] points = Ed25519Point.encodeEach(points());
+        byte[] rounds = concat(Arrays.copyOfRange(points, 5, points.length));
+        return concat(points[0], points[1], points[2], points[3], points[4], taux.bytes, mu.bytes, rounds, a.bytes,
+                b.bytes, t.bytes);
     }
 
     /* Given a value v (0..2^N-1) and a mask gamma, construct a range proof */
     public static BulletProof prove(Scalar value, Scalar gamma) {
-        Ed25519Point V = H.scalarMultiply(value).add(G.scalarMultiply(gamma));
-
-        // This hash is updated for Fiat-Shamir throughout the proof
-        Scalar hashCache = hashToScalar(V.toBytes());
-
-        // PAPER LINES 36-37
-        Scalar[] aL = new Scalar[N];
-        Scalar[] aR = new Scalar[N];
-
-        BigInteger tempV = value.toBigInteger();
-        for (int i = N - 1; i >= 0; i--) {
-            BigInteger basePow = BigInteger.valueOf(2).pow(i);
-            if (tempV.divide(basePow).equals(BigInteger.ZERO)) {
-                aL[i] = Scalar.ZERO;
-            } else {
-                aL[i] = Scalar.ONE;
-                tempV = tempV.subtract(basePow);
-            }
+        return prove(value, gamma, KeccakRandom.current());
+    }
 
-            aR[i] = aL[i].sub(Scalar.ONE);
-        }
+    /* As above, deriving the blinding scalars from the value, the mask and the entropy source */
+    public static BulletProof prove(Scalar value, Scalar gamma, Random entropy) {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("BulletProof.prove");
+             ProofEvents.Event event = ProofEvents.begin("BulletProof.prove")) {
+            event.multiExpSize(2 * N);
+            Random random = KeccakRandom.derive(entropy, value.bytes, gamma.bytes);
+            Ed25519Point V = H.scalarMultiply(value).add(G.scalarMultiply(gamma));
+
+            // This hash is updated for Fiat-Shamir throughout the proof
+            Scalar hashCache = hashToScalar(V.toBytes());
+
+            // PAPER LINES 36-37
+            Scalar[] aL = new Scalar[N];
+            Scalar[] aR = new Scalar[N];
+
+            BigInteger tempV = value.toBigInteger();
+            for (int i = N - 1; i >= 0; i--) {
+                BigInteger basePow = BigInteger.valueOf(2).pow(i);
+                if (tempV.divide(basePow).equals(BigInteger.ZERO)) {
+                    aL[i] = Scalar.ZERO;
+                } else {
+                    aL[i] = Scalar.ONE;
+                    tempV = tempV.subtract(basePow);
+                }
 
-        // PAPER LINES 38-39
-        Scalar alpha = randomScalar();
-        Ed25519Point A = vectorExponent(aL, aR).add(G.scalarMultiply(alpha));
+                aR[i] = aL[i].sub(Scalar.ONE);
+            }
 
-        // PAPER LINES 40-42
-        Scalar[] sL = new Scalar[N];
-        Scalar[] sR = new Scalar[N];
-        for (int i = 0; i < N; i++) {
-            sL[i] = randomScalar();
-            sR[i] = randomScalar();
-        }
-        Scalar rho = randomScalar();
-        Ed25519Point S = vectorExponent(sL, sR).add(G.scalarMultiply(rho));
+            CallSiteProfiler.step("commitments");
+            // PAPER LINES 38-39
+            Scalar alpha = randomScalar(random);
+            ScalarVector aLv = new ScalarVector(aL);
+            ScalarVector aRv = new ScalarVector(aR);
+            Ed25519Point A = vectorExponent(aLv, aRv).add(G.scalarMultiply(alpha));
+
+            // PAPER LINES 40-42
+            ScalarVector sL = new ScalarVector(randomScalars(N, random));
+            ScalarVector sR = new ScalarVector(randomScalars(N, random));
+            Scalar rho = randomScalar(random);
+            Ed25519Point S = vectorExponent(sL, sR).add(G.scalarMultiply(rho));
+
+            // PAPER LINES 43-45
+            byte[][] AS = Ed25519Point.encodeEach(A, S);
+            hashCache = hashToScalar(concat(hashCache.bytes, AS[0]));
+            hashCache = hashToScalar(concat(hashCache.bytes, AS[1]));
+            Scalar y = hashCache;
+            hashCache = hashToScalar(hashCache.bytes);
+            Scalar z = hashCache;
+
+            CallSiteProfiler.step("polynomial");
+            // Polynomial construction before PAPER LINE 46
+            // l(X) = l0 + sL*X and r(X) = r0 + r1*X with
+            // l0 = aL - z*1^n, r0 = y^n o (aR + z*1^n) + z^2*2^n and r1 = y^n o sR
+            ScalarVector yN = ScalarVector.powers(y, N);
+            ScalarVector l0 = aLv.addConstant(Scalar.ZERO.sub(z));
+            ScalarVector r0 = TWO_N.copy().scale(z.sq()).hadamardAccumulate(yN, aRv.addConstant(z));
+            ScalarVector r1 = sR.hadamard(yN);
+
+            Scalar t1 = l0.innerProduct(r1).add(sL.innerProduct(r0));
+            Scalar t2 = sL.innerProduct(r1);
+
+            // PAPER LINES 47-48
+            Scalar tau1 = randomScalar(random);
+            Scalar tau2 = randomScalar(random);
+            Ed25519Point T1 = H.scalarMultiply(t1).add(G.scalarMultiply(tau1));
+            Ed25519Point T2 = H.scalarMultiply(t2).add(G.scalarMultiply(tau2));
+
+            // PAPER LINES 49-51
+            hashCache = hashToScalar(concat(hashCache.bytes, z.bytes));
+            byte[][] T = Ed25519Point.encodeEach(T1, T2);
+            hashCache = hashToScalar(concat(hashCache.bytes, T[0]));
+            hashCache = hashToScalar(concat(hashCache.bytes, T[1]));
+            Scalar x = hashCache;
+
+            // PAPER LINES 52-53
+            Scalar taux = tau1.mul(x);
+            taux = tau2.muladd(x.sq(), taux);
+            taux = gamma.muladd(z.sq(), taux);
+            Scalar mu = x.muladd(rho, alpha);
+
+            // PAPER LINES 54-57
+            ScalarVector l = l0.axpy(x, sL);
+            ScalarVector r = r0.axpy(x, r1);
+
+            Scalar t = l.innerProduct(r);
+
+            // PAPER LINES 32-33
+            hashCache = hashToScalar(concat(hashCache.bytes, x.bytes));
+            hashCache = hashToScalar(concat(hashCache.bytes, taux.bytes));
+            hashCache = hashToScalar(concat(hashCache.bytes, mu.bytes));
+            hashCache = hashToScalar(concat(hashCache.bytes, t.bytes));
+            Scalar x_ip = hashCache;
+
+            CallSiteProfiler.step("innerProduct");
+            // These are used in the inner product rounds
+            int nPrime = N;
+            PointVector GPrime = Gi.copy();
+            Ed25519Point[] hPrime = new Ed25519Point[N];
+            ScalarVector aPrime = l;
+            ScalarVector bPrime = r;
+            ScalarVector yInverseN = ScalarVector.powers(y.invert(), N);
+            for (int i = 0; i < N; i++) {
+                hPrime[i] = Hi.get(i).scalarMultiply(yInverseN.get(i));
+            }
+            PointVector HPrime = PointVector.of(hPrime);
+            Ed25519Point[] L = new Ed25519Point[logN];
+            Ed25519Point[] R = new Ed25519Point[logN];
+            int round = 0; // track the index based on number of rounds
+            Scalar[] w = new Scalar[logN]; // this is the challenge x in the inner product protocol
+
+            // PAPER LINE 13
+            while (nPrime > 1) {
+                // PAPER LINE 15
+                nPrime /= 2;
+
+                // The halves are views, folded in place into the left ones
+                ScalarVector aLeft = aPrime.slice(0, nPrime);
+                ScalarVector aRight = aPrime.slice(nPrime, aPrime.size());
+                ScalarVector bLeft = bPrime.slice(0, nPrime);
+                ScalarVector bRight = bPrime.slice(nPrime, bPrime.size());
+
+                // PAPER LINES 16-17
+                Scalar cL = aLeft.innerProduct(bRight);
+                Scalar cR = aRight.innerProduct(bLeft);
+
+                // PAPER LINES 18-19
+                L[round] = vectorExponentCustom(GPrime.slice(nPrime, GPrime.size()), HPrime.slice(0, nPrime), aLeft,
+                        bRight).add(H.scalarMultiply(cL.mul(x_ip)));
+                R[round] = vectorExponentCustom(GPrime.slice(0, nPrime), HPrime.slice(nPrime, HPrime.size()), aRight,
+                        bLeft).add(H.scalarMultiply(cR.mul(x_ip)));
+
+                // PAPER LINES 21-22
+                byte[][] LR = Ed25519Point.encodeEach(L[round], R[round]);
+                hashCache = hashToScalar(concat(hashCache.bytes, LR[0]));
+                hashCache = hashToScalar(concat(hashCache.bytes, LR[1]));
+                w[round] = hashCache;
+                Scalar wInverse = w[round].invert();
+
+                // PAPER LINES 24-25
+                GPrime = fold(GPrime, nPrime, wInverse, w[round]);
+                HPrime = fold(HPrime, nPrime, w[round], wInverse);
+
+                // PAPER LINES 28-29
+                aPrime = aLeft.scale(w[round]).axpy(wInverse, aRight);
+                bPrime = bLeft.scale(wInverse).axpy(w[round], bRight);
+
+                round += 1;
+            }
 
-        // PAPER LINES 43-45
-        hashCache = hashToScalar(concat(hashCache.bytes, A.toBytes()));
-        hashCache = hashToScalar(concat(hashCache.bytes, S.toBytes()));
-        Scalar y = hashCache;
-        hashCache = hashToScalar(hashCache.bytes);
-        Scalar z = hashCache;
-
-        // Polynomial construction before PAPER LINE 46
-        Scalar t1 = Scalar.ZERO;
-        Scalar t2 = Scalar.ZERO;
-
-        t1 = t1.add(innerProduct(vectorSubtract(aL, vectorScalar(vectorPowers(Scalar.ONE), z)), hadamard(vectorPowers
-                (y), sR)));
-        t1 = t1.add(innerProduct(sL, vectorAdd(hadamard(vectorPowers(y), vectorAdd(aR, vectorScalar(vectorPowers
-                (Scalar.ONE), z))), vectorScalar(vectorPowers(Scalar.TWO), z.sq()))));
-
-        t2 = t2.add(innerProduct(sL, hadamard(vectorPowers(y), sR)));
-
-        // PAPER LINES 47-48
-        Scalar tau1 = randomScalar();
-        Scalar tau2 = randomScalar();
-        Ed25519Point T1 = H.scalarMultiply(t1).add(G.scalarMultiply(tau1));
-        Ed25519Point T2 = H.scalarMultiply(t2).add(G.scalarMultiply(tau2));
-
-        // PAPER LINES 49-51
-        hashCache = hashToScalar(concat(hashCache.bytes, z.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, T1.toBytes()));
-        hashCache = hashToScalar(concat(hashCache.bytes, T2.toBytes()));
-        Scalar x = hashCache;
-
-        // PAPER LINES 52-53
-        Scalar taux = tau1.mul(x);
-        taux = taux.add(tau2.mul(x.sq()));
-        taux = taux.add(gamma.mul(z.sq()));
-        Scalar mu = x.mul(rho).add(alpha);
-
-        // PAPER LINES 54-57
-        Scalar[] l = vectorAdd(vectorSubtract(aL, vectorScalar(vectorPowers(Scalar.ONE), z)), vectorScalar(sL, x));
-        Scalar[] r = vectorAdd(hadamard(vectorPowers(y), vectorAdd(aR, vectorAdd(vectorScalar(vectorPowers(Scalar
-                .ONE), z), vectorScalar(sR, x)))), vectorScalar(vectorPowers(Scalar.TWO), z.sq()));
-
-        Scalar t = innerProduct(l, r);
-
-        // PAPER LINES 32-33
-        hashCache = hashToScalar(concat(hashCache.bytes, x.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, taux.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, mu.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, t.bytes));
-        Scalar x_ip = hashCache;
-
-        // These are used in the inner product rounds
-        int nPrime = N;
-        Ed25519Point[] GPrime = new Ed25519Point[N];
-        Ed25519Point[] HPrime = new Ed25519Point[N];
-        Scalar[] aPrime = new Scalar[N];
-        Scalar[] bPrime = new Scalar[N];
-        for (int i = 0; i < N; i++) {
-            GPrime[i] = Gi[i];
-            HPrime[i] = Hi[i].scalarMultiply(invert(y).pow(i));
-            aPrime[i] = l[i];
-            bPrime[i] = r[i];
-        }
-        Ed25519Point[] L = new Ed25519Point[logN];
-        Ed25519Point[] R = new Ed25519Point[logN];
-        int round = 0; // track the index based on number of rounds
-        Scalar[] w = new Scalar[logN]; // this is the challenge x in the inner product protocol
-
-        // PAPER LINE 13
-        while (nPrime > 1) {
-            // PAPER LINE 15
-            nPrime /= 2;
-
-            // PAPER LINES 16-17
-            Scalar cL = innerProduct(scalarSlice(aPrime, 0, nPrime), scalarSlice(bPrime, nPrime, bPrime.length));
-            Scalar cR = innerProduct(scalarSlice(aPrime, nPrime, aPrime.length), scalarSlice(bPrime, 0, nPrime));
-
-            // PAPER LINES 18-19
-            L[round] = vectorExponentCustom(curveSlice(GPrime, nPrime, GPrime.length), curveSlice(HPrime, 0, nPrime),
-                    scalarSlice(aPrime, 0, nPrime), scalarSlice(bPrime, nPrime, bPrime.length)).add(H.scalarMultiply
-                    (cL.mul(x_ip)));
-            R[round] = vectorExponentCustom(curveSlice(GPrime, 0, nPrime), curveSlice(HPrime, nPrime, HPrime.length),
-                    scalarSlice(aPrime, nPrime, aPrime.length), scalarSlice(bPrime, 0, nPrime)).add(H.scalarMultiply
-                    (cR.mul(x_ip)));
-
-            // PAPER LINES 21-22
-            hashCache = hashToScalar(concat(hashCache.bytes, L[round].toBytes()));
-            hashCache = hashToScalar(concat(hashCache.bytes, R[round].toBytes()));
-            w[round] = hashCache;
-
-            // PAPER LINES 24-25
-            GPrime = hadamard2(vectorScalar2(curveSlice(GPrime, 0, nPrime), invert(w[round])), vectorScalar2
-                    (curveSlice(GPrime, nPrime, GPrime.length), w[round]));
-            HPrime = hadamard2(vectorScalar2(curveSlice(HPrime, 0, nPrime), w[round]), vectorScalar2(curveSlice
-                    (HPrime, nPrime, HPrime.length), invert(w[round])));
-
-            // PAPER LINES 28-29
-            aPrime = vectorAdd(vectorScalar(scalarSlice(aPrime, 0, nPrime), w[round]), vectorScalar(scalarSlice
-                    (aPrime, nPrime, aPrime.length), invert(w[round])));
-            bPrime = vectorAdd(vectorScalar(scalarSlice(bPrime, 0, nPrime), invert(w[round])), vectorScalar
-                    (scalarSlice(bPrime, nPrime, bPrime.length), w[round]));
-
-            round += 1;
+            // PAPER LINE 58 (with inclusions from PAPER LINE 8 and PAPER LINE 20)
+            BulletProof proof = new BulletProof(V, A, S, T1, T2, taux, mu, L, R, aPrime.get(0), bPrime.get(0), t);
+            proveLatency.stopTimer(start);
+            return event.result(proof);
         }
+    }
 
-        // PAPER LINE 58 (with inclusions from PAPER LINE 8 and PAPER LINE 20)
-        return new BulletProof(V, A, S, T1, T2, taux, mu, L, R, aPrime[0], bPrime[0], t);
+    /* Construct the range proof on the shared executor */
+    public static CompletableFuture<BulletProof> proveAsync(Scalar value, Scalar gamma) {
+        return CompletableFuture.supplyAsync(() -> prove(value, gamma), ConcurrencyUtils.getExecutor());
     }
 
-    /* Given a range proof, determine if it is valid */
-    public boolean verify() {
-        // Reconstruct the challenges
-        Scalar hashCache = hashToScalar(V.toBytes());
-        hashCache = hashToScalar(concat(hashCache.bytes, A.toBytes()));
-        hashCache = hashToScalar(concat(hashCache.bytes, S.toBytes()));
-        Scalar y = hashCache;
-        hashCache = hashToScalar(hashCache.bytes);
-        Scalar z = hashCache;
-        hashCache = hashToScalar(concat(hashCache.bytes, z.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, T1.toBytes()));
-        hashCache = hashToScalar(concat(hashCache.bytes, T2.toBytes()));
-        Scalar x = hashCache;
-        hashCache = hashToScalar(concat(hashCache.bytes, x.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, taux.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, mu.bytes));
-        hashCache = hashToScalar(concat(hashCache.bytes, t.bytes));
-        Scalar x_ip = hashCache;
+    /* As above, from a generator derived from the entropy source before leaving the calling thread */
+    public static CompletableFuture<BulletProof> proveAsync(Scalar value, Scalar gamma, Random entropy) {
+        Random random = KeccakRandom.derive(entropy);
+        return CompletableFuture.supplyAsync(() -> prove(value, gamma, random), ConcurrencyUtils.getExecutor());
+    }
 
-        // PAPER LINE 61
-        Ed25519Point L61Left = G.scalarMultiply(taux).add(H.scalarMultiply(t));
+    /* Verify the range proof on the shared executor */
+    public CompletableFuture<Boolean> verifyAsync() {
+        return CompletableFuture.supplyAsync(this::verify, ConcurrencyUtils.getExecutor());
+    }
 
-        Scalar k = computeK(y, z);
+    /* Given a range proof, determine if it is valid */
+    public boolean verify() {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("BulletProof.verify");
+             ProofEvents.Event event = ProofEvents.begin("BulletProof.verify")) {
+            event.multiExpSize(2 * N);
+            if (!hasRounds()) {
+                verifyLatency.stopTimer(start);
+                return event.result(false);
+            }
 
-        Ed25519Point L61Right = H.scalarMultiply(k.add(z.mul(innerProduct(vectorPowers(Scalar.ONE), vectorPowers(y)))));
-        L61Right = L61Right.add(V.scalarMultiply(z.sq()));
-        L61Right = L61Right.add(T1.scalarMultiply(x));
-        L61Right = L61Right.add(T2.scalarMultiply(x.sq()));
+            Challenges ch = challenges();
+            Scalar z = ch.z;
+            Scalar x = ch.x;
+            Scalar x_ip = ch.x_ip;
+            Scalar[] w = ch.w;
 
-        if (!L61Right.equals(L61Left))
-            return false;
+            CallSiteProfiler.step("line61");
+            // PAPER LINE 61
+            Scalar yNSum = ch.yN.sum();
+            Scalar k = computeK(yNSum, z);
 
-        // PAPER LINE 62
-        Ed25519Point P = Ed25519Point.ZERO;
-        P = P.add(A);
-        P = P.add(S.scalarMultiply(x));
+            PointAccumulator L61Right = new PointAccumulator(H.scalarMultiply(k.add(z.mul(yNSum))));
+            L61Right.add(V.scalarMultiply(z.sq()));
+            L61Right.add(T1.scalarMultiply(x));
+            L61Right.add(T2.scalarMultiply(x.sq()));
 
-        // Compute the number of rounds for the inner product
-        int rounds = L.length;
+            L61Right.subtract(G.scalarMultiply(taux));
+            L61Right.subtract(H.scalarMultiply(t));
 
-        // PAPER LINES 21-22
-        // The inner product challenges are computed per round
-        Scalar[] w = new Scalar[rounds];
-        hashCache = hashToScalar(concat(hashCache.bytes, L[0].toBytes()));
-        hashCache = hashToScalar(concat(hashCache.bytes, R[0].toBytes()));
-        w[0] = hashCache;
-        if (rounds > 1) {
-            for (int i = 1; i < rounds; i++) {
-                hashCache = hashToScalar(concat(hashCache.bytes, L[i].toBytes()));
-                hashCache = hashToScalar(concat(hashCache.bytes, R[i].toBytes()));
-                w[i] = hashCache;
+            if (!L61Right.isIdentity()) {
+                verifyLatency.stopTimer(start);
+                return event.result(false);
             }
-        }
 
-        // Basically PAPER LINES 24-25
-        // Compute the curvepoints from G[i] and H[i]
-        Ed25519Point InnerProdG = Ed25519Point.ZERO;
-        Ed25519Point InnerProdH = Ed25519Point.ZERO;
-        for (int i = 0; i < N; i++) {
-            // Convert the index to binary IN REVERSE and construct the scalar exponent
-            int index = i;
-            Scalar gScalar = a;
-            Scalar hScalar = b.mul(invert(y).pow(i));
-
-            for (int j = rounds - 1; j >= 0; j--) {
-                int J = w.length - j - 1; // because this is done in reverse bit order
-                int basePow = (int) Math.pow(2, j); // assumes we don't get too big
-                if (index / basePow == 0) // bit is zero
-                {
-                    gScalar = gScalar.mul(invert(w[J]));
-                    hScalar = hScalar.mul(w[J]);
-                } else // bit is one
-                {
-                    gScalar = gScalar.mul(w[J]);
-                    hScalar = hScalar.mul(invert(w[J]));
-                    index -= basePow;
-                }
-            }
+            CallSiteProfiler.step("line62");
+            // PAPER LINE 62
+            PointAccumulator P = new PointAccumulator();
+            P.add(A);
+            P.add(S.scalarMultiply(x));
 
-            // Adjust the scalars using the exponents from PAPER LINE 62
-            gScalar = gScalar.add(z);
-            hScalar = hScalar.sub(z.mul(y.pow(i)).add(z.sq().mul(Scalar.TWO.pow(i))).mul(invert(y).pow(i)));
+            // Compute the number of rounds for the inner product
+            int rounds = L.length;
 
-            // Now compute the basepoint's scalar multiplication
-            // Each of these could be written as a multiexp operation instead
-            InnerProdG = InnerProdG.add(Gi[i].scalarMultiply(gScalar));
-            InnerProdH = InnerProdH.add(Hi[i].scalarMultiply(hScalar));
-        }
+            // Basically PAPER LINES 24-25
+            // Compute the curvepoints from G[i] and H[i]
+            Scalar[][] exponents = innerProductExponents(ch);
+            Ed25519Point InnerProdG = MultiExp.multiply(Gi, exponents[0]);
+            Ed25519Point InnerProdH = MultiExp.multiply(Hi, exponents[1]);
 
-        // PAPER LINE 26
-        Ed25519Point PPrime = P.add(G.scalarMultiply(Scalar.ZERO.sub(mu)));
+            // PAPER LINE 26
+            PointAccumulator PPrime = P.add(G.scalarMultiply(Scalar.ZERO.sub(mu)));
 
-        for (int i = 0; i < rounds; i++) {
-            PPrime = PPrime.add(L[i].scalarMultiply(w[i].sq()));
-            PPrime = PPrime.add(R[i].scalarMultiply(invert(w[i]).sq()));
+            for (int i = 0; i < rounds; i++) {
+                PPrime.add(L[i].scalarMultiply(w[i].sq()));
+                PPrime.add(R[i].scalarMultiply(ch.wInverse[i].sq()));
+            }
+            // the H terms of both sides, t * x_ip and a * b * x_ip, combined into one
+            PPrime.add(H.scalarMultiply(t.sub(a.mul(b)).mul(x_ip)));
+            PPrime.subtract(InnerProdG);
+            PPrime.subtract(InnerProdH);
+
+            boolean valid = PPrime.isIdentity();
+            verifyLatency.stopTimer(start);
+            return event.result(valid);
         }
-        PPrime = PPrime.add(H.scalarMultiply(t.mul(x_ip)));
-
-        return PPrime.equals(InnerProdG.add(InnerProdH).add(H.scalarMultiply(a.mul(b).mul(x_ip))));
     }
 
-    /* Given two scalar arrays, construct a vector commitment */
-    private static Ed25519Point vectorExponent(Scalar[] a, Scalar[] b) {
-        assert a.length == N && b.length == N;
+    /**
+     * Gets both verification equations (PAPER LINES 61 and 62) as Left - Right, each multiplied by a random
+     * weight, which sum to the identity for a valid proof
+     *
+     * @return The weighted terms of both equations
+     */
+    public MultiExpTerms verificationTerms() {
+        if (!hasRounds()) return MultiExpTerms.rejected();
+        Challenges ch = challenges();
+        Scalar z = ch.z;
+        Scalar x = ch.x;
+        Scalar x_ip = ch.x_ip;
+        Scalar[] w = ch.w;
+
+        Scalar w1 = randomScalar();
+        Scalar w2 = randomScalar();
+
+        MultiExpTerms terms = new MultiExpTerms();
+
+        // PAPER LINE 61: taux*G + t*H - (k + z*<1,y^n>)*H - z^2*V - x*T1 - x^2*T2
+        Scalar yNSum = ch.yN.sum();
+        Scalar k = computeK(yNSum, z);
+        terms.add(G, w1.mul(taux));
+        terms.add(H, w1.mul(t.sub(k.add(z.mul(yNSum)))));
+        terms.subtract(V, w1.mul(z.sq()));
+        terms.subtract(T1, w1.mul(x));
+        terms.subtract(T2, w1.mul(x.sq()));
+
+        // PAPER LINE 62 and 26: P' - (InnerProdG + InnerProdH + ab*x_ip*H)
+        terms.add(A, w2);
+        terms.add(S, w2.mul(x));
+        terms.subtract(G, w2.mul(mu));
+        for (int i = 0; i < L.length; i++) {
+            terms.add(L[i], w2.mul(w[i].sq()));
+            terms.add(R[i], w2.mul(ch.wInverse[i].sq()));
+        }
+        terms.add(H, w2.mul(t.sub(a.mul(b)).mul(x_ip)));
 
-        Ed25519Point Result = Ed25519Point.ZERO;
+        Scalar[][] exponents = innerProductExponents(ch);
         for (int i = 0; i < N; i++) {
-            Result = Result.add(Gi[i].scalarMultiply(a[i]));
-            Result = Result.add(Hi[i].scalarMultiply(b[i]));
+            exponents[0][i] = w2.mul(exponents[0][i]);
+            exponents[1][i] = w2.mul(exponents[1][i]);
         }
-        return Result;
-    }
-
-    /* Compute a custom vector-scalar commitment */
-    private static Ed25519Point vectorExponentCustom(Ed25519Point[] A, Ed25519Point[] B, Scalar[] a, Scalar[] b) {
-        assert a.length == A.length && b.length == B.length && a.length == b.length;
+        terms.subtract(Gi, exponents[0]);
+        terms.subtract(Hi, exponents[1]);
 
-        Ed25519Point Result = Ed25519Point.ZERO;
-        for (int i = 0; i < a.length; i++) {
-            Result = Result.add(A[i].scalarMultiply(a[i]));
-            Result = Result.add(B[i].scalarMultiply(b[i]));
-        }
-        return Result;
+        return terms;
     }
 
-    /* Given a scalar, construct a vector of powers */
-    private static Scalar[] vectorPowers(Scalar scalar) {
-        Scalar[] result = new Scalar[N];
-        for (int i = 0; i < N; i++) {
-            result[i] = scalar.pow(i);
-        }
-        return result;
+    /* The inner product argument folds N = 2^logN generators, one L and R per round */
+    private boolean hasRounds() {
+        return L != null && R != null && L.length == logN && R.length == logN;
     }
 
-    /* Given two scalar arrays, construct the inner product */
-    private static Scalar innerProduct(Scalar[] a, Scalar[] b) {
-        assert a.length == b.length;
-
-        Scalar result = Scalar.ZERO;
-        for (int i = 0; i < a.length; i++) {
-            result = result.add(a[i].mul(b[i]));
-        }
-        return result;
+    /* V, A, S, T1, T2, then L and R, in proof order */
+    private Ed25519Point[] points() {
+        Ed25519Point[] points = new Ed25519Point[5 + L.length + R.length];
+        points[0] = V;
+        points[1] = A;
+        points[2] = S;
+        points[3] = T1;
+        points[4] = T2;
+        System.arraycopy(L, 0, points, 5, L.length);
+        System.arraycopy(R, 0, points, 5 + L.length, R.length);
+        return points;
     }
 
-    /* Given two scalar arrays, construct the Hadamard product */
-    private static Scalar[] hadamard(Scalar[] a, Scalar[] b) {
-        assert a.length == b.length;
+    /* Reconstruct the Fiat-Shamir challenges of the proof */
+    private Challenges challenges() {
+        Challenges ch = new Challenges();
 
-        Scalar[] result = new Scalar[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i].mul(b[i]);
-        }
-        return result;
-    }
+        // every point of the proof encoded at once: V, A, S, T1, T2, then L and R
+        byte[][] points = Ed25519Point.encodeEach(points());
+        int rounds = L.length;
 
-    /* Given two curvepoint arrays, construct the Hadamard product */
-    private static Ed25519Point[] hadamard2(Ed25519Point[] A, Ed25519Point[] B) {
-        assert A.length == B.length;
+        Scalar hashCache = hashToScalar(points[0]);
+        hashCache = hashToScalar(concat(hashCache.bytes, points[1]));
+        hashCache = hashToScalar(concat(hashCache.bytes, points[2]));
+        ch.y = hashCache;
+        hashCache = hashToScalar(hashCache.bytes);
+        ch.z = hashCache;
+        hashCache = hashToScalar(concat(hashCache.bytes, ch.z.bytes));
+        hashCache = hashToScalar(concat(hashCache.bytes, points[3]));
+        hashCache = hashToScalar(concat(hashCache.bytes, points[4]));
+        ch.x = hashCache;
+        hashCache = hashToScalar(concat(hashCache.bytes, ch.x.bytes));
+        hashCache = hashToScalar(concat(hashCache.bytes, taux.bytes));
+        hashCache = hashToScalar(concat(hashCache.bytes, mu.bytes));
+        hashCache = hashToScalar(concat(hashCache.bytes, t.bytes));
+        ch.x_ip = hashCache;
 
-        Ed25519Point[] Result = new Ed25519Point[A.length];
-        for (int i = 0; i < A.length; i++) {
-            Result[i] = A[i].add(B[i]);
+        // PAPER LINES 21-22
+        // The inner product challenges are computed per round
+        ch.w = new Scalar[rounds];
+        for (int i = 0; i < rounds; i++) {
+            hashCache = hashToScalar(concat(hashCache.bytes, points[5 + i]));
+            hashCache = hashToScalar(concat(hashCache.bytes, points[5 + rounds + i]));
+            ch.w[i] = hashCache;
         }
-        return Result;
-    }
 
-    /* Add two vectors */
-    private static Scalar[] vectorAdd(Scalar[] a, Scalar[] b) {
-        assert a.length == b.length;
+        // Invert y and every w[i] at once
+        Scalar[] toInvert = Arrays.copyOf(ch.w, rounds + 1);
+        toInvert[rounds] = ch.y;
+        Scalar[] inverses = Scalar.invertAll(toInvert);
+        ch.wInverse = Arrays.copyOf(inverses, rounds);
 
-        Scalar[] result = new Scalar[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i].add(b[i]);
-        }
-        return result;
+        ch.yN = ScalarVector.powers(ch.y, N);
+        ch.yInverseN = ScalarVector.powers(inverses[rounds], N);
+
+        return ch;
     }
 
-    /* Subtract two vectors */
-    private static Scalar[] vectorSubtract(Scalar[] a, Scalar[] b) {
-        assert a.length == b.length;
+    /* The scalars of G[i] and H[i] on the right side of PAPER LINE 62 */
+    private Scalar[][] innerProductExponents(Challenges ch) {
+        Scalar z = ch.z;
+        Scalar zSquared = z.sq();
 
-        Scalar[] result = new Scalar[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i].sub(b[i]);
-        }
-        return result;
-    }
+        // The challenge products of G[i], the bits of the index are read in reverse. H[i] takes the inverse of
+        // every factor, which is the product at the complementary index N - 1 - i.
+        ScalarVector s = ScalarVector.challengeProducts(ch.w, ch.wInverse);
 
-    /* Multiply a scalar and a vector */
-    private static Scalar[] vectorScalar(Scalar[] a, Scalar scalar) {
-        Scalar[] result = new Scalar[a.length];
-        for (int i = 0; i < a.length; i++) {
-            result[i] = a[i].mul(scalar);
-        }
-        return result;
-    }
+        Scalar[] gScalars = new Scalar[N];
+        Scalar[] hScalars = new Scalar[N];
+        for (int i = 0; i < N; i++) {
+            Scalar yInverseI = ch.yInverseN.get(i);
+            Scalar gScalar = a.mul(s.get(i));
+            Scalar hScalar = b.mul(yInverseI).mul(s.get(N - 1 - i));
 
-    /* Exponentiate a curve vector by a scalar */
-    private static Ed25519Point[] vectorScalar2(Ed25519Point[] A, Scalar x) {
-        Ed25519Point[] Result = new Ed25519Point[A.length];
-        for (int i = 0; i < A.length; i++) {
-            Result[i] = A[i].scalarMultiply(x);
+            // Adjust the scalars using the exponents from PAPER LINE 62
+            gScalars[i] = gScalar.add(z);
+            hScalars[i] = hScalar.sub(z.mul(ch.yN.get(i)).add(zSquared.mul(TWO_N.get(i))).mul(yInverseI));
         }
-        return Result;
+        return new Scalar[][]{gScalars, hScalars};
     }
 
-    /* Compute the inverse of a scalar, the stupid way */
-    private static Scalar invert(Scalar scalar) {
-        Scalar inverse = new Scalar(scalar.toBigInteger().modInverse(CryptoUtil.l));
-
-        assert scalar.mul(inverse).equals(Scalar.ONE);
-        return inverse;
+    /* Given two scalar vectors, construct a vector commitment */
+    private static Ed25519Point vectorExponent(ScalarVector a, ScalarVector b) {
+        return vectorExponentCustom(Gi, Hi, a, b);
     }
 
-    /* Compute the slice of a curvepoint vector */
-    private static Ed25519Point[] curveSlice(Ed25519Point[] a, int start, int stop) {
-        Ed25519Point[] Result = new Ed25519Point[stop - start];
-        System.arraycopy(a, start, Result, 0, stop - start);
-        return Result;
+    /* Compute a custom vector-scalar commitment */
+    private static Ed25519Point vectorExponentCustom(PointVector A, PointVector B, ScalarVector a, ScalarVector b) {
+        assert a.size() == A.size() && b.size() == B.size() && a.size() == b.size();
+
+        return MultiExp.multiply(A, a.toArray()).add(MultiExp.multiply(B, b.toArray()));
     }
 
-    /* Compute the slice of a scalar vector */
-    private static Scalar[] scalarSlice(Scalar[] a, int start, int stop) {
-        Scalar[] result = new Scalar[stop - start];
-        System.arraycopy(a, start, result, 0, stop - start);
-        return result;
+    /* P'[i] = left * P[i] + right * P[nPrime + i], written over the first half of P */
+    private static PointVector fold(PointVector P, int nPrime, Scalar left, Scalar right) {
+        Ed25519Point[] folded = new Ed25519Point[nPrime];
+        for (int i = 0; i < nPrime; i++) {
+            folded[i] = P.get(i).scalarMultiply(left).add(P.get(nPrime + i).scalarMultiply(right));
+        }
+        return P.setAll(0, folded).slice(0, nPrime);
     }
 
-    /* Compute the value of k(y,z) */
-    private static Scalar computeK(Scalar y, Scalar z) {
+    /* Compute the value of k(y,z) from <1^n, y^n> */
+    private static Scalar computeK(Scalar yNSum, Scalar z) {
         Scalar result = Scalar.ZERO;
-        result = result.sub(z.sq().mul(innerProduct(vectorPowers(Scalar.ONE), vectorPowers(y))));
-        result = result.sub(z.pow(3).mul(innerProduct(vectorPowers(Scalar.ONE), vectorPowers(Scalar.TWO))));
+        result = result.sub(z.sq().mul(yNSum));
+        result = result.sub(z.pow(3).mul(ONE_N_DOT_TWO_N));
 
         return result;
     }
+
+    private static class Challenges {
+        Scalar y;
+        Scalar z;
+        Scalar x;
+        Scalar x_ip;
+        Scalar[] w;
+        Scalar[] wInverse;
+        ScalarVector yN;
+        ScalarVector yInverseN;
+    }
 }
@@ -1,9 +1,18 @@
 package ringct.proofs;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.MultiExpTerms;
+import utils.CallSiteProfiler;
+import utils.ProofEvents;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 
 import static crypto.CryptoUtil.COMb;
+import static crypto.CryptoUtil.getHpnGLookup;
 import static crypto.CryptoUtil.hashToScalar;
 import static crypto.Scalar.randomScalar;
 import static utils.ArrayUtils.concat;
@@ -29,73 +38,174 @@ public class Proof1 {
     }
 
     public static Proof1 prove(Scalar[][] b, Scalar r) {
-        int decompositionExponent = b.length;
-        int decompositionBase = b[0].length;
+        return prove(b, r, KeccakRandom.current());
+    }
 
-        Scalar rA = randomScalar();
-        Scalar rC = randomScalar();
-        Scalar rD = randomScalar();
+    /**
+     * @param random The source of the blinding scalars
+     */
+    public static Proof1 prove(Scalar[][] b, Scalar r, Random random) {
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("Proof1.prove");
+             ProofEvents.Event event = ProofEvents.begin("Proof1.prove")) {
+            int decompositionExponent = b.length;
+            int decompositionBase = b[0].length;
+            event.decomposition(decompositionBase, decompositionExponent).multiExpSize(decompositionExponent *
+                    decompositionBase + 1);
+
+            Scalar rA = randomScalar(random);
+            Scalar rC = randomScalar(random);
+            Scalar rD = randomScalar(random);
+
+            Scalar[][] a = new Scalar[decompositionExponent][decompositionBase];
+            for (int j = 0; j < decompositionExponent; j++) {
+                for (int i = 1; i < decompositionBase; i++) {
+                    a[j][i] = randomScalar(random);
+                }
+            }
 
-        Scalar[][] a = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            for (int i = 1; i < decompositionBase; i++) {
-                a[j][i] = randomScalar();
+            for (int j = 0; j < decompositionExponent; j++) {
+                a[j][0] = Scalar.ZERO;
+                for (int i = 1; i < decompositionBase; i++) {
+                    a[j][0] = a[j][0].sub(a[j][i]);
+                }
             }
-        }
 
-        for (int j = 0; j < decompositionExponent; j++) {
-            a[j][0] = Scalar.ZERO;
-            for (int i = 1; i < decompositionBase; i++) {
-                a[j][0] = a[j][0].sub(a[j][i]);
+            CallSiteProfiler.step("commitments");
+            Ed25519Point A = COMb(a, rA);
+
+            Scalar[][] c = new Scalar[decompositionExponent][decompositionBase];
+            Scalar[][] d = new Scalar[decompositionExponent][decompositionBase];
+            for (int j = 0; j < decompositionExponent; j++) {
+                for (int i = 0; i < decompositionBase; i++) {
+                    c[j][i] = a[j][i].mul(Scalar.ONE.sub(b[j][i].mul(Scalar.TWO)));
+                    d[j][i] = a[j][i].sq().mul(Scalar.MINUS_ONE);
+                }
             }
-        }
 
-        Ed25519Point A = COMb(a, rA);
+            Ed25519Point C = COMb(c, rC);
+            Ed25519Point D = COMb(d, rD);
 
-        Scalar[][] c = new Scalar[decompositionExponent][decompositionBase];
-        Scalar[][] d = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            for (int i = 0; i < decompositionBase; i++) {
-                c[j][i] = a[j][i].mul(Scalar.ONE.sub(b[j][i].mul(Scalar.TWO)));
-                d[j][i] = a[j][i].sq().mul(Scalar.MINUS_ONE);
+            CallSiteProfiler.step("responses");
+            Scalar x = hashToScalar(Ed25519Point.encodeAll(A, C, D));
+
+            Scalar[][] f = new Scalar[decompositionExponent][decompositionBase];
+            for (int j = 0; j < decompositionExponent; j++) {
+                for (int i = 0; i < decompositionBase; i++) {
+                    f[j][i] = b[j][i].muladd(x, a[j][i]);
+                }
             }
+
+            Scalar[][] fTrimmed = new Scalar[decompositionExponent][decompositionBase - 1];
+            for (int j = 0; j < decompositionExponent; j++) {
+                System.arraycopy(f[j], 1, fTrimmed[j], 0, decompositionBase - 1);
+            }
+
+            Scalar zA = r.muladd(x, rA);
+            Scalar zC = rC.muladd(x, rD);
+
+            return event.result(new Proof1(A, C, D, fTrimmed, zA, zC, a));
         }
+    }
 
-        Ed25519Point C = COMb(c, rC);
-        Ed25519Point D = COMb(d, rD);
+    public boolean isValid(Ed25519Point B) {
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("Proof1.isValid");
+             ProofEvents.Event event = ProofEvents.begin("Proof1.isValid")) {
+            int decompositionExponent = fTrimmed.length;
+            int decompositionBase = fTrimmed[0].length + 1;
+            event.decomposition(decompositionBase, decompositionExponent).multiExpSize(decompositionExponent *
+                    decompositionBase + 1);
+
+            boolean abcdOnCurve =
+                    A.satisfiesCurveEquation()
+                            && B.satisfiesCurveEquation()
+                            && C.satisfiesCurveEquation()
+                            && D.satisfiesCurveEquation();
+
+            if (!abcdOnCurve) {
+                System.out.println("VALID1: ABCD not on curve");
+                return event.result(false);
+            }
 
-        Scalar x = hashToScalar(concat(A.toBytes(), C.toBytes(), D.toBytes()));
+            Scalar x = hashToScalar(Ed25519Point.encodeAll(A, C, D));
+            Scalar[][] f = expandF(x);
+            Scalar[][] f1 = computeF1(f, x);
+
+            for (int j = 0; j < decompositionExponent; j++) {
+                Scalar colSum = x;
+                for (int i = 1; i < decompositionBase; i++) {
+                    colSum = colSum.sub(f[j][i]);
+                }
+                if (!f[j][0].equals(colSum)) {
+                    System.out.println("VALID1: FAILED For each j=0, ..., m-1, f[j][0] == x-f[j][1]-f[j][2]- ... " +
+                            "-f[j][n-1]");
+                    return event.result(false);
+                }
+            }
 
-        Scalar[][] f = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            for (int i = 0; i < decompositionBase; i++) {
-                f[j][i] = b[j][i].mul(x).add(a[j][i]);
+            CallSiteProfiler.step("commitments");
+            if (!B.scalarMultiply(x).add(A).projectiveEquals(COMb(f, zA))) {
+                System.out.println("VALID1: FAILED xB + A == COMp(f[0][0], ..., f[m-1][n-1]; z[A])");
+                return event.result(false);
             }
+            if (!C.scalarMultiply(x).add(D).projectiveEquals(COMb(f1, zC))) {
+                System.out.println("VALID1: FAILED xC + D == COMp(f'[0][0], ..., f'[m-1][n-1]; z[C])");
+                return event.result(false);
+            }
+
+            return event.result(true);
         }
+    }
 
-        Scalar[][] fTrimmed = new Scalar[decompositionExponent][decompositionBase - 1];
-        for (int j = 0; j < decompositionExponent; j++) {
-            System.arraycopy(f[j], 1, fTrimmed[j], 0, decompositionBase - 1);
+    /**
+     * Checks many proofs at once, combining both curve equations of every proof into one randomized
+     * multi-scalar multiplication over the shared G and Hpn generators
+     *
+     * @param proofs The proofs
+     * @param B      The commitment each proof was made against
+     * @return Whether each proof is valid
+     */
+    public static boolean[] isValidBatch(Proof1[] proofs, Ed25519Point[] B) {
+        List<MultiExpTerms> batch = new ArrayList<>(proofs.length);
+        for (int p = 0; p < proofs.length; p++) {
+            batch.add(proofs[p].verificationTerms(B[p]));
         }
+        return MultiExpTerms.verifyEach(batch);
+    }
 
-        Scalar zA = r.mul(x).add(rA);
-        Scalar zC = rC.mul(x).add(rD);
+    /**
+     * Gets w1 * (xB + A - COMb(f; zA)) + w2 * (xC + D - COMb(f'; zC)) for random w1, w2, which is the identity
+     * for a valid proof
+     *
+     * @param B The commitment the proof was made against
+     * @return The weighted terms of both equations
+     */
+    public MultiExpTerms verificationTerms(Ed25519Point B) {
+        int decompositionExponent = fTrimmed.length;
+        int decompositionBase = fTrimmed[0].length + 1;
 
-        return new Proof1(A, C, D, fTrimmed, zA, zC, a);
-    }
+        Scalar x = hashToScalar(Ed25519Point.encodeAll(A, C, D));
+        Scalar[][] f = expandF(x);
+        Scalar[][] f1 = computeF1(f, x);
 
-    public boolean isValid(Ed25519Point B) {
-        boolean abcdOnCurve =
-                A.satisfiesCurveEquation()
-                        && B.satisfiesCurveEquation()
-                        && C.satisfiesCurveEquation()
-                        && D.satisfiesCurveEquation();
-
-        if (!abcdOnCurve) {
-            System.out.println("VALID1: ABCD not on curve");
-            return false;
+        Scalar w1 = randomScalar();
+        Scalar w2 = randomScalar();
+
+        MultiExpTerms terms = new MultiExpTerms();
+        terms.add(B, w1.mul(x));
+        terms.add(A, w1);
+        terms.add(C, w2.mul(x));
+        terms.add(D, w2);
+        terms.subtract(Ed25519Point.G, w1.muladd(zA, w2.mul(zC)));
+        for (int j = 0; j < decompositionExponent; j++) {
+            for (int i = 0; i < decompositionBase; i++) {
+                terms.subtract(getHpnGLookup(j * decompositionBase + i + 1), w1.muladd(f[j][i], w2.mul(f1[j][i])));
+            }
         }
+        return terms;
+    }
 
+    /* Rebuild the full f matrix from the trimmed one, f[j][0] = x - f[j][1] - ... - f[j][n-1] */
+    Scalar[][] expandF(Scalar x) {
         int decompositionExponent = fTrimmed.length;
         int decompositionBase = fTrimmed[0].length + 1;
 
@@ -104,49 +214,27 @@ public class Proof1 {
             System.arraycopy(fTrimmed[j], 0, f[j], 1, decompositionBase - 1);
         }
 
-        Scalar x = hashToScalar(concat(A.toBytes(), C.toBytes(), D.toBytes()));
-
         for (int j = 0; j < decompositionExponent; j++) {
             f[j][0] = x;
             for (int i = 1; i < decompositionBase; i++) {
                 f[j][0] = f[j][0].sub(f[j][i]);
             }
         }
+        return f;
+    }
 
-        Scalar[][] f1 = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            for (int i = 0; i < decompositionBase; i++) {
+    private static Scalar[][] computeF1(Scalar[][] f, Scalar x) {
+        Scalar[][] f1 = new Scalar[f.length][f[0].length];
+        for (int j = 0; j < f.length; j++) {
+            for (int i = 0; i < f[j].length; i++) {
                 f1[j][i] = f[j][i].mul(x.sub(f[j][i]));
             }
         }
-
-        for (int j = 0; j < decompositionExponent; j++) {
-            Scalar colSum = x;
-            for (int i = 1; i < decompositionBase; i++) {
-                colSum = colSum.sub(f[j][i]);
-            }
-            if (!f[j][0].equals(colSum)) {
-                System.out.println("VALID1: FAILED For each j=0, ..., m-1, f[j][0] == x-f[j][1]-f[j][2]- ... " +
-                        "-f[j][n-1]");
-                return false;
-            }
-        }
-
-        if (!B.scalarMultiply(x).add(A).equals(COMb(f, zA))) {
-            System.out.println("VALID1: FAILED xB + A == COMp(f[0][0], ..., f[m-1][n-1]; z[A])");
-            return false;
-        }
-        if (!C.scalarMultiply(x).add(D).equals(COMb(f1, zC))) {
-            System.out.println("VALID1: FAILED xC + D == COMp(f'[0][0], ..., f'[m-1][n-1]; z[C])");
-            return false;
-        }
-
-        return true;
-
+        return f1;
     }
 
     public byte[] toBytes(int decompositionBase, int decompositionExponent) {
-        byte[] result = concat(A.toBytes(), C.toBytes(), D.toBytes());
+        byte[] result = Ed25519Point.encodeAll(A, C, D);
         for (int j = 0; j < decompositionExponent; j++) {
             for (int i = 0; i < decompositionBase - 1; i++) {
                 result = concat(result, fTrimmed[j][i].bytes);
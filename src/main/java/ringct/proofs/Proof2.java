@@ -1,11 +1,22 @@
 package ringct.proofs;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
+import crypto.ScalarVector;
 import crypto.ed25519.Ed25519Point;
 import crypto.ed25519.Ed25519PointPair;
+import crypto.ed25519.MultiExp;
+import crypto.ed25519.MultiExpTerms;
+import crypto.ed25519.PointAccumulator;
+import utils.CallSiteProfiler;
+import utils.ConcurrencyUtils;
 import utils.HexEncoder;
+import utils.Metrics;
+import utils.ProofEvents;
 
 import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.Executor;
 
 import static crypto.CryptoUtil.*;
 import static crypto.Scalar.bigIntegerArrayToScalarArray;
@@ -18,6 +29,9 @@ public class Proof2 {
     public Ed25519PointPair[] G; // ss
     public Scalar z;
 
+    public static final Metrics.Histogram proveLatency = Metrics.histogram("Proof2.prove");
+    public static final Metrics.Histogram verifyLatency = Metrics.histogram("Proof2.isValid");
+
     public Proof2(Proof1 P, Ed25519Point B, Ed25519PointPair[] G, Scalar z) {
         this.P = P;
         this.B = B;
@@ -26,123 +40,202 @@ public class Proof2 {
     }
 
     public static Proof2 prove(Ed25519PointPair[] co, int iAsterisk, Scalar r, int decompositionBase, int decompositionExponent) {
-        int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
+        return prove(co, iAsterisk, r, decompositionBase, decompositionExponent, ConcurrencyUtils.DIRECT);
+    }
 
-        Scalar[] u = new Scalar[decompositionExponent];
-        for (int k = 0; k < decompositionExponent; k++) u[k] = randomScalar();
+    /**
+     * Proves as above, accumulating each G[k] as its own task on the executor
+     */
+    public static Proof2 prove(Ed25519PointPair[] co, int iAsterisk, Scalar r, int decompositionBase, int
+            decompositionExponent, Executor executor) {
+        return prove(co, iAsterisk, r, decompositionBase, decompositionExponent, executor, KeccakRandom.current());
+    }
 
-        Scalar rB = randomScalar();
+    /**
+     * Proves as above, deriving the nonces from the secret, the ring and the entropy source
+     */
+    public static Proof2 prove(Ed25519PointPair[] co, int iAsterisk, Scalar r, int decompositionBase, int
+            decompositionExponent, Executor executor, Random entropy) {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("Proof2.prove");
+             ProofEvents.Event event = ProofEvents.begin("Proof2.prove")) {
+            int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
+            event.decomposition(decompositionBase, decompositionExponent).ringSize(ringSize).multiExpSize(ringSize);
 
-        int[] iAsteriskSequence = nAryDecompose(decompositionBase, iAsterisk, decompositionExponent);
+            byte[] ring = Ed25519PointPair.toBytes(co);
+            Random random = KeccakRandom.derive(entropy, r.bytes, ring);
 
-        Scalar[][] d = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            for (int i = 0; i < decompositionBase; i++) {
-                d[j][i] = Scalar.intToScalar(delta(iAsteriskSequence[j], i));
-            }
-        }
+            Scalar[] u = new Scalar[decompositionExponent];
+            for (int k = 0; k < decompositionExponent; k++) u[k] = randomScalar(random);
 
-        Ed25519Point B = COMb(d, rB);
+            Scalar rB = randomScalar(random);
 
-        Proof1 P = Proof1.prove(d, rB);
+            int[] iAsteriskSequence = nAryDecompose(decompositionBase, iAsterisk, decompositionExponent);
 
-        Scalar[][] coefs = COEFS(P.a, iAsterisk);
+            Scalar[][] d = new Scalar[decompositionExponent][decompositionBase];
+            for (int j = 0; j < decompositionExponent; j++) {
+                for (int i = 0; i < decompositionBase; i++) {
+                    d[j][i] = Scalar.intToScalar(delta(iAsteriskSequence[j], i));
+                }
+            }
 
-        Ed25519PointPair[] G = new Ed25519PointPair[decompositionExponent];
+            CallSiteProfiler.step("commitments");
+            Ed25519Point B = COMb(d, rB);
 
-        for (int k = 0; k < decompositionExponent; k++) {
-            G[k] = ENCeg(Ed25519Point.ZERO, u[k]);
-            for (int i = 0; i < ringSize; i++) {
-                G[k] = G[k].add(co[i].multiply(coefs[i][k]));
-            }
-        }
+            CallSiteProfiler.step("proof1");
+            Proof1 P = Proof1.prove(d, rB, random);
 
-        byte[] bytes = concat(P.A.toBytes(), P.C.toBytes(), P.D.toBytes());
-        Scalar x1 = hashToScalar(bytes);
+            CallSiteProfiler.step("ringCommitments");
+            Scalar[][] coefs = COEFS(P.a, iAsterisk);
 
-        Scalar z = r.mul(x1.pow(decompositionExponent));
-        for (int i = decompositionExponent - 1; i >= 0; i--) {
-            z = z.sub(u[i].mul(x1.pow(i)));
+            Ed25519PointPair[] G = ConcurrencyUtils.map(decompositionExponent, k -> {
+                Ed25519PointPair mask = ENCeg(Ed25519Point.ZERO, u[k]);
+                PointAccumulator first = new PointAccumulator(mask.P1);
+                PointAccumulator second = new PointAccumulator(mask.P2);
+                for (int i = 0; i < ringSize; i++) {
+                    Ed25519PointPair term = co[i].multiply(coefs[i][k]);
+                    first.add(term.P1);
+                    second.add(term.P2);
+                }
+                return new Ed25519PointPair(first.toPoint(), second.toPoint());
+            }, Ed25519PointPair[]::new, executor);
+
+            byte[] bytes = Ed25519Point.encodeAll(P.A, P.C, P.D);
+            Scalar x1 = hashToScalar(bytes);
+
+            ScalarVector x1Powers = ScalarVector.powers(x1, decompositionExponent + 1);
+            Scalar z = r.mul(x1Powers.get(decompositionExponent));
+            for (int i = decompositionExponent - 1; i >= 0; i--) {
+                z = u[i].mulsub(x1Powers.get(i), z);
+            }
+            Proof2 proof = new Proof2(P, B, G, z);
+            proveLatency.stopTimer(start);
+            return event.result(proof);
         }
-        return new Proof2(P, B, G, z);
     }
 
     public boolean isValid(int decompositionBase, Ed25519PointPair[] co) {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("Proof2.isValid");
+             ProofEvents.Event event = ProofEvents.begin("Proof2.isValid")) {
+            event.decomposition(decompositionBase, P.fTrimmed.length).ringSize(co.length).multiExpSize(co.length);
+
+            boolean abcdOnCurve =
+                    P.A.satisfiesCurveEquation()
+                            && B.satisfiesCurveEquation()
+                            && P.C.satisfiesCurveEquation()
+                            && P.D.satisfiesCurveEquation();
+            if (!abcdOnCurve) {
+                System.out.println("VALID2: FAILED: ABCD not on curve");
+                verifyLatency.stopTimer(start);
+                return event.result(false);
+            }
 
-        boolean abcdOnCurve =
-                P.A.satisfiesCurveEquation()
-                        && B.satisfiesCurveEquation()
-                        && P.C.satisfiesCurveEquation()
-                        && P.D.satisfiesCurveEquation();
-        if (!abcdOnCurve) {
-            System.out.println("VALID2: FAILED: ABCD not on curve");
-            return false;
-        }
+            CallSiteProfiler.step("proof1");
+            if (!P.isValid(B)) {
+                System.out.println("VALID2: FAILED: VALID1 failed");
+                verifyLatency.stopTimer(start);
+                return event.result(false);
+            }
 
-        if (!P.isValid(B)) {
-            System.out.println("VALID2: FAILED: VALID1 failed");
-            return false;
-        }
+            CallSiteProfiler.step("ringCommitments");
+            Scalar x1 = hashToScalar(Ed25519Point.encodeAll(P.A, P.C, P.D));
 
-        Scalar x1 = hashToScalar(concat(P.A.toBytes(), P.C.toBytes(), P.D.toBytes()));
+            int decompositionExponent = P.fTrimmed.length;
+            int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
 
-        int decompositionExponent = P.fTrimmed.length;
-        Scalar[][] f = new Scalar[decompositionExponent][decompositionBase];
-        for (int j = 0; j < decompositionExponent; j++) {
-            System.arraycopy(P.fTrimmed[j], 0, f[j], 1, decompositionBase - 1);
+            Ed25519PointPair c = ENCeg(Ed25519Point.ZERO, z);
+
+            Scalar[] g = ringCoefficients(P.expandF(x1), decompositionBase, ringSize);
+
+            Ed25519Point[] first = new Ed25519Point[ringSize];
+            Ed25519Point[] second = new Ed25519Point[ringSize];
+            for (int i = 0; i < ringSize; i++) {
+                first[i] = co[i].P1;
+                second[i] = co[i].P2;
+            }
+            // c' - c, the identity in both halves for a valid proof
+            PointAccumulator difference1 = new PointAccumulator(MultiExp.multiply(first, g));
+            PointAccumulator difference2 = new PointAccumulator(MultiExp.multiply(second, g));
+            for (int k = 0; k < decompositionExponent; k++) {
+                Ed25519PointPair term = G[k].multiply(x1.pow(k));
+                difference1.subtract(term.P1);
+                difference2.subtract(term.P2);
+            }
+            difference1.subtract(c.P1);
+            difference2.subtract(c.P2);
+
+            boolean result = difference1.isIdentity() && difference2.isIdentity();
+            if (!result) {
+                System.out.println("VALID2: FAILED: c' != c");
+                System.out.println("c:  (" + HexEncoder.getString(c.P1.toBytes()) + ", " + HexEncoder.getString(c
+                        .P2.toBytes()));
+                System.out.println("c' - c: (" + HexEncoder.getString(difference1.toPoint().toBytes()) + ", " +
+                        HexEncoder.getString(difference2.toPoint().toBytes()));
+            }
+            verifyLatency.stopTimer(start);
+            return event.result(result);
         }
+    }
+
+    /**
+     * Gets the terms of c' - c, one random weight per point of the pair, plus the terms of the inner Proof1.
+     * They sum to the identity for a valid proof.
+     *
+     * @param decompositionBase The decomposition base
+     * @param co                The commitments the proof was made against
+     * @return The weighted terms
+     */
+    public MultiExpTerms verificationTerms(int decompositionBase, Ed25519PointPair[] co) {
+        MultiExpTerms terms = P.verificationTerms(B);
 
+        Scalar x = hashToScalar(Ed25519Point.encodeAll(P.A, P.C, P.D));
+
+        int decompositionExponent = P.fTrimmed.length;
         int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
 
-        Ed25519PointPair c = ENCeg(Ed25519Point.ZERO, z);
+        Scalar[] g = ringCoefficients(P.expandF(x), decompositionBase, ringSize);
 
-        Scalar x = hashToScalar(concat(P.A.toBytes(), P.C.toBytes(), P.D.toBytes()));
-        for (int j = 0; j < decompositionExponent; j++) {
-            f[j][0] = x;
-            for (int i = 1; i < decompositionBase; i++) {
-                f[j][0] = f[j][0].sub(f[j][i]);
-            }
+        Scalar w1 = randomScalar();
+        Scalar w2 = randomScalar();
+
+        for (int i = 0; i < ringSize; i++) {
+            terms.add(co[i].P1, w1.mul(g[i]));
+            terms.add(co[i].P2, w2.mul(g[i]));
         }
 
-        Scalar[] g = new Scalar[ringSize];
-        g[0] = f[0][0];
-        for (int j = 1; j < decompositionExponent; j++) {
-            g[0] = g[0].mul(f[j][0]);
+        Scalar xk = Scalar.ONE;
+        for (int k = 0; k < decompositionExponent; k++) {
+            terms.subtract(G[k].P1, w1.mul(xk));
+            terms.subtract(G[k].P2, w2.mul(xk));
+            xk = xk.mul(x);
         }
 
-        Ed25519PointPair c1 = co[0].multiply(g[0]);
-        for (int i = 1; i < ringSize; i++) {
+        // c = ENCeg(0, z)
+        terms.subtract(getHpnGLookup(1), w1.mul(z));
+        terms.subtract(Ed25519Point.G, w2.mul(z));
+
+        return terms;
+    }
+
+    /* g[i] = f[0][i_0] * f[1][i_1] * ... * f[m-1][i_m-1] for the n-ary digits of i */
+    private static Scalar[] ringCoefficients(Scalar[][] f, int decompositionBase, int ringSize) {
+        int decompositionExponent = f.length;
+
+        Scalar[] g = new Scalar[ringSize];
+        for (int i = 0; i < ringSize; i++) {
             int[] iSequence = nAryDecompose(decompositionBase, i, decompositionExponent);
             g[i] = f[0][iSequence[0]];
             for (int j = 1; j < decompositionExponent; j++) {
                 g[i] = g[i].mul(f[j][iSequence[j]]);
             }
-            c1 = c1.add(co[i].multiply(g[i]));
-        }
-
-        for (int k = 0; k < decompositionExponent; k++) {
-            c1 = c1.subtract(G[k].multiply(x1.pow(k)));
-        }
-
-
-        boolean result = c1.equals(c);
-        if (!result) {
-            System.out.println("VALID2: FAILED: c' != c");
-            System.out.println("c:  (" + HexEncoder.getString(c.P1.toBytes()) + ", " + HexEncoder.getString(c
-                    .P2.toBytes()));
-            System.out.println("c': (" + HexEncoder.getString(c1.P1.toBytes()) + ", " + HexEncoder.getString
-                    (c1.P2.toBytes()));
         }
-        return result;
-
+        return g;
     }
 
     public byte[] toBytes(int decompositionBase, int decompositionExponent) {
-        byte[] bytes;
-        bytes = concat(P.toBytes(decompositionBase, decompositionExponent), B.toBytes());
-        for (Ed25519PointPair g : G) bytes = concat(bytes, g.toBytes());
-        bytes = concat(bytes, z.bytes);
-        return bytes;
+        return concat(P.toBytes(decompositionBase, decompositionExponent), B.toBytes(), Ed25519PointPair.toBytes(G),
+                z.bytes);
     }
 
     public static Scalar[][] COEFS(Scalar[][] a, int iAsterisk) {
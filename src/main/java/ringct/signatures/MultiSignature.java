@@ -1,22 +1,77 @@
 package ringct.signatures;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
-import utils.HexEncoder;
+import crypto.ed25519.MultiExpTerms;
+import crypto.ed25519.PointAccumulator;
+import utils.CallSiteProfiler;
+import utils.Metrics;
+import utils.ProofEvents;
 
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import static crypto.CryptoUtil.*;
 import static crypto.Scalar.randomScalar;
+import static crypto.Scalar.randomScalars;
 import static utils.ArrayUtils.concat;
 
 public class MultiSignature {
 
+    private static final int KEY_LENGTH = 33;
+
+    public static final Metrics.Histogram signLatency = Metrics.histogram("MultiSignature.sign");
+    public static final Metrics.Histogram verifyLatency = Metrics.histogram("MultiSignature.verify");
+
+    /**
+     * Sorts the keys by their encoding, compared as unsigned bytes. Equal keys are kept.
+     */
     public static Ed25519Point[] lexicographicalSort(Ed25519Point[] X) {
-        SortedMap<String, Ed25519Point> hexToPoint = new TreeMap<>();
-        for (Ed25519Point Xi : X) hexToPoint.put(HexEncoder.getString(Xi.toBytes()), Xi);
-        return hexToPoint.values().toArray(new Ed25519Point[0]);
+        Integer[] order = lexicographicalOrder(encodeKeys(X), X.length);
+        Ed25519Point[] sorted = new Ed25519Point[X.length];
+        for (int i = 0; i < X.length; i++) sorted[i] = X[order[i]];
+        return sorted;
+    }
+
+    /* Encode every key into one buffer, KEY_LENGTH bytes each */
+    private static byte[] encodeKeys(Ed25519Point[] X) {
+        if (hasIdentityKey(X)) throw new IllegalArgumentException("The identity is not a valid public key");
+        byte[] encoded = new byte[X.length * KEY_LENGTH];
+        byte[][] keys = Ed25519Point.encodeEach(X);
+        for (int i = 0; i < X.length; i++) System.arraycopy(keys[i], 0, encoded, i * KEY_LENGTH, KEY_LENGTH);
+        return encoded;
+    }
+
+    // the identity encodes to a single byte instead of KEY_LENGTH, and signs for nobody
+    private static boolean hasIdentityKey(Ed25519Point[] X) {
+        for (Ed25519Point key : X) if (key.isIdentity()) return true;
+        return false;
+    }
+
+    private static Integer[] lexicographicalOrder(byte[] encoded, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> compareKeys(encoded, a * KEY_LENGTH, b * KEY_LENGTH));
+        return order;
+    }
+
+    private static int compareKeys(byte[] encoded, int offsetA, int offsetB) {
+        for (int i = 0; i < KEY_LENGTH; i++) {
+            int cmp = Integer.compare(encoded[offsetA + i] & 0xff, encoded[offsetB + i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    /* L* = H(L'), hashed straight from the already encoded keys */
+    private static Scalar keyListHash(byte[] encoded, int n) {
+        byte[] sorted = new byte[encoded.length];
+        Integer[] order = lexicographicalOrder(encoded, n);
+        for (int i = 0; i < n; i++) System.arraycopy(encoded, order[i] * KEY_LENGTH, sorted, i * KEY_LENGTH, KEY_LENGTH);
+        return hashToScalar(sorted);
     }
 
     /*
@@ -27,18 +82,79 @@ public class MultiSignature {
           3) Accept if and only if sG = R + c[1]*X[1] + ... + c[n]*X[n]
      */
     public static boolean verify(byte[] M, Ed25519Point[] X, Signature signature) {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("MultiSignature.verify");
+             ProofEvents.Event event = ProofEvents.begin("MultiSignature.verify")) {
+            int n = X.length;
+            event.inputs(n).multiExpSize(n + 1);
+            if (hasIdentityKey(X)) {
+                verifyLatency.stopTimer(start);
+                return event.result(false);
+            }
+
+            Scalar[] c = challenges(M, X, signature.R);
+            CallSiteProfiler.step("equation");
+            // R + c[1]*X[1] + ... + c[n]*X[n] - sG, the identity for a valid signature
+            PointAccumulator difference = new PointAccumulator(signature.R);
+            for (int i = 0; i < n; i++) difference.add(X[i].scalarMultiply(c[i]));
+            difference.subtract(Ed25519Point.G.scalarMultiply(signature.s));
+            boolean valid = difference.isIdentity();
+            verifyLatency.stopTimer(start);
+            return event.result(valid);
+        }
+    }
+
+    /*
+        Batched VER*: Take as input many tuples (M[j], L'[j], sigma[j] = (R[j], s[j])).
+          1) Compute every c[j][i] as in VER*
+          2) Select z[j] at random from Zq
+          3) Accept all if and only if
+             sum_j z[j] * (s[j]G - R[j] - c[j][1]*X[j][1] - ... - c[j][n]*X[j][n]) = 0
+          4) Otherwise bisect the batch to find which tuples are rejected
+     */
+    public static boolean[] verifyBatch(byte[][] M, Ed25519Point[][] X, Signature[] signatures) {
+        List<MultiExpTerms> batch = new ArrayList<>(signatures.length);
+        for (int j = 0; j < signatures.length; j++) {
+            batch.add(verificationTerms(M[j], X[j], signatures[j]));
+        }
+        return MultiExpTerms.verifyEach(batch);
+    }
+
+    /**
+     * Gets z * (sG - R - c[1]*X[1] - ... - c[n]*X[n]) for a random z, which is the identity for a valid signature
+     */
+    public static MultiExpTerms verificationTerms(byte[] M, Ed25519Point[] X, Signature signature) {
+        if (hasIdentityKey(X)) return MultiExpTerms.rejected();
+        Scalar[] c = challenges(M, X, signature.R);
+        Scalar z = randomScalar();
+
+        MultiExpTerms terms = new MultiExpTerms();
+        terms.add(Ed25519Point.G, z.mul(signature.s));
+        terms.subtract(signature.R, z);
+        for (int i = 0; i < X.length; i++) terms.subtract(X[i], z.mul(c[i]));
+        return terms;
+    }
+
+    /* c[i] = Hs(X[i], R, L*, M) */
+    private static Scalar[] challenges(byte[] M, Ed25519Point[] X, Ed25519Point R) {
         int n = X.length;
 
-        Scalar XAsterisk = hashToScalar(toBytes(lexicographicalSort(X)));
+        byte[] encoded = encodeKeys(X);
+        Scalar XAsterisk = keyListHash(encoded, n);
+
+        // X[i] || R || L* || M, only the X[i] part changes between challenges
+        byte[] RBytes = R.toBytes();
+        byte[] transcript = new byte[KEY_LENGTH + RBytes.length + XAsterisk.bytes.length + M.length];
+        System.arraycopy(RBytes, 0, transcript, KEY_LENGTH, RBytes.length);
+        System.arraycopy(XAsterisk.bytes, 0, transcript, KEY_LENGTH + RBytes.length, XAsterisk.bytes.length);
+        System.arraycopy(M, 0, transcript, KEY_LENGTH + RBytes.length + XAsterisk.bytes.length, M.length);
 
         Scalar[] c = new Scalar[n];
         for (int i = 0; i < n; i++) {
-            c[i] = hashToScalar(concat(X[i].toBytes(), signature.R.toBytes(), XAsterisk.bytes, M));
+            System.arraycopy(encoded, i * KEY_LENGTH, transcript, 0, KEY_LENGTH);
+            c[i] = hashToScalar(transcript);
         }
-        Ed25519Point sG = Ed25519Point.G.scalarMultiply(signature.s);
-        Ed25519Point sG1 = signature.R;
-        for (int i = 0; i < n; i++) sG1 = sG1.add(X[i].scalarMultiply(c[i]));
-        return sG.equals(sG1);
+        return c;
     }
 
     /*
@@ -55,29 +171,41 @@ public class MultiSignature {
         6) Output the signature sigma = (R, s)
      */
     public static Signature sign(byte[] M, Scalar[] x, Ed25519Point[] X) {
-        int n = x.length;
-        if (X == null) {
-            X = new Ed25519Point[n];
-            for (int i = 0; i < n; i++) {
-                X[i] = Ed25519Point.G.scalarMultiply(x[i]);
-            }
+        return sign(M, x, X, KeccakRandom.current());
+    }
 
-        }
-        Scalar XAsterisk = hashToScalar(toBytes(lexicographicalSort(X)));
+    /**
+     * Signs as above, deriving the nonces r[i] from the message, the private keys and the entropy source
+     */
+    public static Signature sign(byte[] M, Scalar[] x, Ed25519Point[] X, Random entropy) {
+        long start = Metrics.startTimer();
+        try (CallSiteProfiler.Phase ignored = CallSiteProfiler.phase("MultiSignature.sign");
+             ProofEvents.Event event = ProofEvents.begin("MultiSignature.sign")) {
+            int n = x.length;
+            event.inputs(n);
+            if (X == null) {
+                X = new Ed25519Point[n];
+                for (int i = 0; i < n; i++) {
+                    X[i] = Ed25519Point.G.scalarMultiply(x[i]);
+                }
 
-        Scalar[] rArray = new Scalar[n];
-        for (int i = 0; i < n; i++) rArray[i] = randomScalar();
-        Scalar r = sumArray(rArray);
+            }
 
-        Ed25519Point R = Ed25519Point.G.scalarMultiply(r);
-        Scalar[] c = new Scalar[n];
-        Scalar[] sArray = new Scalar[n];
-        for (int i = 0; i < n; i++) {
-            c[i] = hashToScalar(concat(X[i].toBytes(), R.toBytes(), XAsterisk.bytes, M));
-            sArray[i] = rArray[i].add(x[i].mul(c[i]));
+            CallSiteProfiler.step("nonces");
+            byte[][] secrets = new byte[n + 1][];
+            secrets[0] = M;
+            for (int i = 0; i < n; i++) secrets[i + 1] = x[i].bytes;
+            Scalar[] rArray = randomScalars(n, KeccakRandom.derive(entropy, secrets));
+            Scalar r = sumArray(rArray);
+
+            Ed25519Point R = Ed25519Point.G.scalarMultiply(r);
+            CallSiteProfiler.step("responses");
+            Scalar[] c = challenges(M, X, R);
+            // s = sum(r[i] + x[i] * c[i]) = r + <x, c>
+            Scalar s = Scalar.innerProduct(x, c).add(r);
+            signLatency.stopTimer(start);
+            return event.result(new Signature(R, s));
         }
-        Scalar s = sumArray(sArray);
-        return new Signature(R, s);
     }
 
     public static class Signature {
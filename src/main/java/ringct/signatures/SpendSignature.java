@@ -4,6 +4,7 @@ import crypto.ed25519.Ed25519Point;
 import cursor.ECCursor;
 import ringct.proofs.Proof1;
 import ringct.proofs.Proof2;
+import utils.ProofEvents;
 import utils.VarInt;
 
 import static utils.ArrayUtils.concat;
@@ -34,18 +35,37 @@ public class SpendSignature {
         return result;
     }
 
+    /**
+     * Checks the Proof1 bit commitments of many spend signatures together
+     *
+     * @param signatures The spend signatures
+     * @return Whether the Proof1 of each signature is valid
+     */
+    public static boolean[] verifyProof1Batch(SpendSignature[] signatures) {
+        Proof1[] proofs = new Proof1[signatures.length];
+        Ed25519Point[] B = new Ed25519Point[signatures.length];
+        for (int i = 0; i < signatures.length; i++) {
+            proofs[i] = signatures[i].signature.P;
+            B[i] = signatures[i].signature.B;
+        }
+        return Proof1.isValidBatch(proofs, B);
+    }
+
     public static SpendSignature fromBytes(byte[] a) {
-        ECCursor cursor = new ECCursor(a);
-        int decompositionBase = (int) cursor.readVarInt();
-        int decompositionExponent = (int) cursor.readVarInt();
-        return new SpendSignature(decompositionBase, decompositionExponent,
-                cursor.readGroupElement(),
-                new Proof2(
-                        new Proof1(cursor.readGroupElement(), cursor.readGroupElement(), cursor.readGroupElement(),
-                                cursor.readScalar2DArray(decompositionExponent, decompositionBase - 1), cursor
-                                .readScalar(), cursor.readScalar(), null),
-                        cursor.readGroupElement(),
-                        cursor.readPointPairArray(decompositionExponent), cursor.readScalar()),
-                new MultiSignature.Signature(cursor.readGroupElement(), cursor.readScalar()));
+        try (ProofEvents.Event event = ProofEvents.begin("SpendSignature.fromBytes")) {
+            ECCursor cursor = new ECCursor(a);
+            int decompositionBase = (int) cursor.readVarInt();
+            int decompositionExponent = (int) cursor.readVarInt();
+            event.decomposition(decompositionBase, decompositionExponent);
+            return event.result(new SpendSignature(decompositionBase, decompositionExponent,
+                    cursor.readGroupElement(),
+                    new Proof2(
+                            new Proof1(cursor.readGroupElement(), cursor.readGroupElement(), cursor.readGroupElement(),
+                                    cursor.readScalar2DArray(decompositionExponent, decompositionBase - 1), cursor
+                                    .readScalar(), cursor.readScalar(), null),
+                            cursor.readGroupElement(),
+                            cursor.readPointPairArray(decompositionExponent), cursor.readScalar()),
+                    new MultiSignature.Signature(cursor.readGroupElement(), cursor.readScalar())));
+        }
     }
 }
@@ -0,0 +1,312 @@
+package utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Static class that attributes expensive operations (such as scalar multiplications) to the code that caused them.
+ * <p>
+ * Two attributions are kept while enabled:
+ * <ul>
+ * <li>Phases: every operation is counted against the innermost named phase (and step) of the calling thread.
+ * Provers and verifiers open a phase for themselves and mark their steps, so this is exact and costs a thread
+ * local lookup per operation.</li>
+ * <li>Call sites: every sampleInterval-th operation of a thread captures the stack and counts the first frame
+ * outside the curve code (or the first frame in sourceFile when set). Counts are scaled back up by the interval,
+ * so they are estimates.</li>
+ * </ul>
+ * Counts are kept per thread without contention and merged when a snapshot is taken. The counts of threads that
+ * have ended are folded into one shared total, so short lived threads (such as a virtual thread per task) do not
+ * accumulate.
+ */
+public class CallSiteProfiler {
+
+    private static final Phase NO_PHASE = new Phase(null);
+    private static final String[] INTERNAL_PREFIXES = {"crypto.ed25519.", "java.", "sun.", "jdk."};
+
+    private static volatile boolean enabled = false;
+    private static volatile int sampleInterval = 64;
+    private static volatile String sourceFile = null;
+
+    private static final ConcurrentLinkedQueue<ThreadCounts> threads = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger registered = new AtomicInteger();
+    private static final AtomicInteger sweepAt = new AtomicInteger(64);
+    // the counts of threads that have ended
+    private static final ThreadCounts retired = new ThreadCounts(null);
+
+    private static final ThreadLocal<ThreadCounts> local = ThreadLocal.withInitial(() -> {
+        final ThreadCounts counts = new ThreadCounts(Thread.currentThread());
+        threads.add(counts);
+        // sweep whenever the registry has doubled, so registering stays cheap on average
+        if (registered.incrementAndGet() >= sweepAt.get()) {
+            sweep();
+            sweepAt.set(Math.max(64, 2 * registered.get()));
+        }
+        return counts;
+    });
+
+    private CallSiteProfiler() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether operations are attributed.
+     *
+     * @param enabled true to attribute operations.
+     */
+    public static void setEnabled(final boolean enabled) {
+        CallSiteProfiler.enabled = enabled;
+    }
+
+    /**
+     * Sets how often call sites are sampled.
+     *
+     * @param sampleInterval One in this many operations captures its call site, 1 to capture every one.
+     */
+    public static void setSampleInterval(final int sampleInterval) {
+        if (sampleInterval < 1) throw new IllegalArgumentException("Sample interval must be at least 1");
+        CallSiteProfiler.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Restricts call sites to frames in the given source file.
+     *
+     * @param sourceFile The source file name (e.g. "BulletProof.java"), or null for the first frame outside the
+     *                   curve code.
+     */
+    public static void setSourceFile(final String sourceFile) {
+        CallSiteProfiler.sourceFile = sourceFile;
+    }
+
+    /**
+     * Counts an operation against the current phase and, if sampled, its call site.
+     *
+     * @param operation The operation name.
+     */
+    public static void record(final String operation) {
+        if (!enabled) return;
+
+        final ThreadCounts counts = local.get();
+        synchronized (counts) {
+            counts.increment(counts.phases, counts.currentPhase() + " " + operation, 1);
+            if (++counts.sinceSample < sampleInterval) return;
+            counts.sinceSample = 0;
+        }
+
+        final String callSite = callSite(new Throwable().getStackTrace());
+        if (callSite == null) return;
+        synchronized (counts) {
+            counts.increment(counts.callSites, callSite + " " + operation, sampleInterval);
+        }
+    }
+
+    /**
+     * Opens a named phase on the calling thread, nested in the current one. Close it when the phase ends.
+     *
+     * @param name The phase name.
+     * @return The phase.
+     */
+    public static Phase phase(final String name) {
+        if (!enabled) return NO_PHASE;
+
+        final ThreadCounts counts = local.get();
+        synchronized (counts) {
+            final String parent = counts.stack.isEmpty() ? null : counts.currentPhase();
+            final Phase phase = new Phase(parent == null ? name : parent + " > " + name);
+            counts.stack.add(phase);
+            return phase;
+        }
+    }
+
+    /**
+     * Marks the start of a step within the innermost phase of the calling thread.
+     *
+     * @param name The step name.
+     */
+    public static void step(final String name) {
+        if (!enabled) return;
+
+        final ThreadCounts counts = local.get();
+        synchronized (counts) {
+            if (!counts.stack.isEmpty()) counts.stack.get(counts.stack.size() - 1).step = name;
+        }
+    }
+
+    /**
+     * Clears every count.
+     */
+    public static void reset() {
+        sweep();
+        synchronized (retired) {
+            retired.phases.clear();
+            retired.callSites.clear();
+        }
+        for (final ThreadCounts counts : threads) {
+            synchronized (counts) {
+                counts.phases.clear();
+                counts.callSites.clear();
+                counts.sinceSample = 0;
+            }
+        }
+    }
+
+    /**
+     * Merges the counts of every thread.
+     *
+     * @return The snapshot.
+     */
+    public static Snapshot snapshot() {
+        final Map<String, Long> phases = new TreeMap<>();
+        final Map<String, Long> callSites = new TreeMap<>();
+        sweep();
+        synchronized (retired) {
+            merge(phases, retired.phases);
+            merge(callSites, retired.callSites);
+        }
+        for (final ThreadCounts counts : threads) {
+            synchronized (counts) {
+                merge(phases, counts.phases);
+                merge(callSites, counts.callSites);
+            }
+        }
+        return new Snapshot(phases, callSites);
+    }
+
+    /* Folds the counts of threads that have ended into the retired total and drops them */
+    private static void sweep() {
+        for (final ThreadCounts counts : threads) {
+            // only the sweep that removes the counts folds them in
+            if (counts.isAlive() || !threads.remove(counts)) continue;
+
+            registered.decrementAndGet();
+            synchronized (counts) {
+                synchronized (retired) {
+                    for (final Map.Entry<String, long[]> entry : counts.phases.entrySet())
+                        retired.increment(retired.phases, entry.getKey(), entry.getValue()[0]);
+                    for (final Map.Entry<String, long[]> entry : counts.callSites.entrySet())
+                        retired.increment(retired.callSites, entry.getKey(), entry.getValue()[0]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of threads whose counts are kept separately, for tests.
+     *
+     * @return The number of registered threads.
+     */
+    static int registeredThreads() {
+        sweep();
+        return threads.size();
+    }
+
+    private static void merge(final Map<String, Long> into, final Map<String, long[]> from) {
+        for (final Map.Entry<String, long[]> entry : from.entrySet())
+            into.merge(entry.getKey(), entry.getValue()[0], Long::sum);
+    }
+
+    private static String callSite(final StackTraceElement[] stack) {
+        final String file = sourceFile;
+        for (final StackTraceElement frame : stack) {
+            if (file != null ? file.equals(frame.getFileName()) : !isInternal(frame.getClassName()))
+                return frame.getClassName() + "." + frame.getMethodName() + "(" + frame.getFileName() + ":" + frame
+                        .getLineNumber() + ")";
+        }
+        return null;
+    }
+
+    private static boolean isInternal(final String className) {
+        if (className.equals(CallSiteProfiler.class.getName())) return true;
+        for (final String prefix : INTERNAL_PREFIXES) if (className.startsWith(prefix)) return true;
+        return false;
+    }
+
+    /**
+     * A named phase of the calling thread, closed when the phase ends.
+     */
+    public static class Phase implements AutoCloseable {
+        private final String name;
+        private String step;
+
+        private Phase(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            if (name == null) return;
+
+            final ThreadCounts counts = local.get();
+            synchronized (counts) {
+                // also drops phases left open by an exception
+                final int index = counts.stack.lastIndexOf(this);
+                if (index >= 0) counts.stack.subList(index, counts.stack.size()).clear();
+            }
+        }
+
+        private String label() {
+            return step == null ? name : name + " > " + step;
+        }
+    }
+
+    /**
+     * The merged counts at one point in time, keyed by "phase operation" and "call site operation".
+     */
+    public static class Snapshot {
+        public final Map<String, Long> phases;
+        public final Map<String, Long> callSites;
+
+        private Snapshot(final Map<String, Long> phases, final Map<String, Long> callSites) {
+            this.phases = Collections.unmodifiableMap(phases);
+            this.callSites = Collections.unmodifiableMap(callSites);
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder("Phases:\n");
+            for (final Map.Entry<String, Long> phase : phases.entrySet())
+                builder.append("  ").append(phase.getKey()).append(": ").append(phase.getValue()).append('\n');
+            builder.append("Call sites (estimated):\n");
+            for (final Map.Entry<String, Long> callSite : callSites.entrySet())
+                builder.append("  ").append(callSite.getKey()).append(": ").append(callSite.getValue()).append('\n');
+            return builder.toString();
+        }
+    }
+
+    private static class ThreadCounts {
+        final WeakReference<Thread> owner;
+        final Map<String, long[]> phases = new HashMap<>();
+        final Map<String, long[]> callSites = new HashMap<>();
+        final List<Phase> stack = new ArrayList<>();
+        int sinceSample;
+
+        ThreadCounts(final Thread owner) {
+            this.owner = new WeakReference<>(owner);
+        }
+
+        boolean isAlive() {
+            final Thread thread = owner.get();
+            return thread != null && thread.isAlive();
+        }
+
+        String currentPhase() {
+            return stack.isEmpty() ? "(no phase)" : stack.get(stack.size() - 1).label();
+        }
+
+        void increment(final Map<String, long[]> map, final String key, final long n) {
+            long[] count = map.get(key);
+            if (count == null) map.put(key, count = new long[1]);
+            count[0] += n;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Static class that holds the executor used by the asynchronous prove and verify functions.
+ */
+public class ConcurrencyUtils {
+
+    /**
+     * Runs every task on the calling thread.
+     */
+    public static final Executor DIRECT = Runnable::run;
+
+    private static volatile Executor executor = createDefaultExecutor();
+
+    private ConcurrencyUtils() {
+    }
+
+    /**
+     * Gets the executor for asynchronous work.
+     *
+     * @return Virtual threads when the runtime has them (JDK 21+), the common ForkJoinPool otherwise.
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Sets the executor for asynchronous work.
+     *
+     * @param executor The executor.
+     */
+    public static void setExecutor(final Executor executor) {
+        ConcurrencyUtils.executor = executor;
+    }
+
+    /**
+     * Computes n independent values, spread over the executor, and waits for all of them.
+     * <p>
+     * The calling thread computes values too, taking whichever index is next, so it only ever waits for values
+     * another thread has already started. Callers running on a bounded executor therefore cannot deadlock waiting
+     * for tasks queued behind them.
+     *
+     * @param n        The number of values.
+     * @param task     Computes the value at an index.
+     * @param newArray Creates the result array.
+     * @param executor The executor, DIRECT to compute them one after the other on the calling thread.
+     * @param <T>      The value type.
+     * @return The values in index order.
+     */
+    public static <T> T[] map(final int n, final IntFunction<T> task, final IntFunction<T[]> newArray,
+                              final Executor executor) {
+        final T[] result = newArray.apply(n);
+        if (executor == DIRECT) {
+            for (int i = 0; i < n; i++) result[i] = task.apply(i);
+            return result;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch remaining = new CountDownLatch(n);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < n; i = next.getAndIncrement()) {
+                try {
+                    result[i] = task.apply(i);
+                } catch (final Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    remaining.countDown();
+                }
+            }
+        };
+
+        try {
+            for (int i = 1; i < n; i++) executor.execute(worker);
+        } catch (final RejectedExecutionException e) {
+            // the calling thread computes whatever the executor would not take
+        }
+        worker.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                remaining.await();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        final Throwable e = failure.get();
+        if (e instanceof RuntimeException) throw (RuntimeException) e;
+        if (e instanceof Error) throw (Error) e;
+        if (e != null) throw new CompletionException(e);
+        return result;
+    }
+
+    /**
+     * Waits for a future, rethrowing the exception it failed with.
+     *
+     * @param future The future.
+     * @param <T>    The value type.
+     * @return The value.
+     */
+    public static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            final Method newVirtualThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod
+                    ("newVirtualThreadPerTaskExecutor");
+            return (Executor) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (final ReflectiveOperationException e) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+}
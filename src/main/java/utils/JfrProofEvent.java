@@ -0,0 +1,66 @@
+package utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR event behind ProofEvents. Only loaded once ProofEvents has found JFR on the runtime.
+ */
+@Name("monero.Proof")
+@Label("Proof Operation")
+@Category({"Monero", "RingCT"})
+@Description("Proving, verification or parsing of a ring confidential transaction proof")
+@StackTrace(false)
+class JfrProofEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Ring Size")
+    int ringSize;
+
+    @Label("Inputs")
+    int inputs;
+
+    @Label("Decomposition Base")
+    int decompositionBase;
+
+    @Label("Decomposition Exponent")
+    int decompositionExponent;
+
+    @Label("Multi-Exponentiation Size")
+    @Description("Points in the largest multi-scalar multiplication")
+    int multiExpSize;
+
+    @Label("Outcome")
+    String outcome;
+
+    /* Checked before allocating, so proofs do not create an event per operation while nothing is recording */
+    private static final EventType TYPE = EventType.getEventType(JfrProofEvent.class);
+
+    static Object start() {
+        if (!TYPE.isEnabled()) return null;
+        final JfrProofEvent event = new JfrProofEvent();
+        event.begin();
+        return event;
+    }
+
+    static void commit(final Object started, final ProofEvents.Event values) {
+        final JfrProofEvent event = (JfrProofEvent) started;
+        event.end();
+        if (!event.shouldCommit()) return;
+
+        event.operation = values.operation;
+        event.ringSize = values.ringSize;
+        event.inputs = values.inputs;
+        event.decompositionBase = values.decompositionBase;
+        event.decompositionExponent = values.decompositionExponent;
+        event.multiExpSize = values.multiExpSize;
+        event.outcome = values.outcome;
+        event.commit();
+    }
+}
@@ -0,0 +1,341 @@
+package utils;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static registry of thread safe operation counters and value histograms.
+ * <p>
+ * Recording is disabled by default, in which case every update is a single volatile read. A snapshot of all
+ * metrics can be taken at any time, and registerMBean() exposes them over JMX.
+ */
+public class Metrics {
+
+    private static final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = false;
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets whether metrics are recorded.
+     *
+     * @return true if updates are recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether metrics are recorded.
+     *
+     * @param enabled true to record updates.
+     */
+    public static void setEnabled(final boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * Gets the counter with the given name, creating it if needed.
+     *
+     * @param name The name.
+     * @return The counter.
+     */
+    public static Counter counter(final String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    /**
+     * Gets the histogram with the given name, creating it if needed.
+     *
+     * @param name The name.
+     * @return The histogram.
+     */
+    public static Histogram histogram(final String name) {
+        return histograms.computeIfAbsent(name, Histogram::new);
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return The start time to pass to Histogram.stopTimer, 0 when disabled.
+     */
+    public static long startTimer() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Resets every counter and histogram to zero.
+     */
+    public static void reset() {
+        for (final Counter counter : counters.values()) counter.reset();
+        for (final Histogram histogram : histograms.values()) histogram.reset();
+    }
+
+    /**
+     * Takes a snapshot of every counter and histogram.
+     *
+     * @return The snapshot.
+     */
+    public static Snapshot snapshot() {
+        final Map<String, Long> counterValues = new TreeMap<>();
+        for (final Counter counter : counters.values()) counterValues.put(counter.name, counter.sum());
+
+        final Map<String, HistogramSnapshot> histogramValues = new TreeMap<>();
+        for (final Histogram histogram : histograms.values())
+            histogramValues.put(histogram.name, histogram.snapshot());
+
+        return new Snapshot(counterValues, histogramValues);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server as "monero-proofs:type=Metrics".
+     * Registering more than once has no effect.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MBean(), new ObjectName
+                    ("monero-proofs:type=Metrics"));
+        } catch (final InstanceAlreadyExistsException e) {
+            // already registered
+        } catch (final JMException e) {
+            throw ExceptionUtils.toRuntimeException(e);
+        }
+    }
+
+    /**
+     * A count of operations.
+     */
+    public static class Counter {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(final String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (enabled) count.increment();
+        }
+
+        public void add(final long n) {
+            if (enabled) count.add(n);
+        }
+
+        public long sum() {
+            return count.sum();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        private void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * A distribution of values, such as latencies in nanoseconds or sizes.
+     * <p>
+     * Values are counted in log-linear buckets (SUB_BUCKETS per power of two), like an HDR histogram, so
+     * percentiles are accurate to within 1 / SUB_BUCKETS of the value.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records a value.
+         *
+         * @param value The value, at least 0.
+         */
+        public void record(final long value) {
+            if (!enabled) return;
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Records the nanoseconds since the start time.
+         *
+         * @param start The start time from Metrics.startTimer.
+         */
+        public void stopTimer(final long start) {
+            if (start != 0) record(System.nanoTime() - start);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public HistogramSnapshot snapshot() {
+            final long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) counts[i] = buckets.get(i);
+            return new HistogramSnapshot(counts, count.sum(), sum.sum(), max.get());
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+            max.reset();
+        }
+
+        private static int bucket(final long value) {
+            if (value < SUB_BUCKETS) return (int) Math.max(value, 0);
+            final int exponent = 63 - Long.numberOfLeadingZeros(value);
+            final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long bucketUpperBound(final int bucket) {
+            if (bucket < SUB_BUCKETS) return bucket;
+            final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            final long subBucket = bucket % SUB_BUCKETS;
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+
+    /**
+     * The values recorded by a histogram at one point in time.
+     */
+    public static class HistogramSnapshot {
+        private final long[] buckets;
+        public final long count;
+        public final long sum;
+        public final long max;
+
+        private HistogramSnapshot(final long[] buckets, final long count, final long sum, final long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Gets the value below which the given fraction of the recorded values fall.
+         *
+         * @param fraction The fraction, between 0 and 1.
+         * @return The upper bound of the bucket holding the percentile, capped at the maximum.
+         */
+        public long percentile(final double fraction) {
+            if (count == 0) return 0;
+            final long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(Histogram.bucketUpperBound(i), max);
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "(count: " + count + ", mean: " + String.format("%.0f", mean()) + ", p50: " + percentile(0.5) +
+                    ", p99: " + percentile(0.99) + ", max: " + max + ")";
+        }
+    }
+
+    /**
+     * The values of every counter and histogram at one point in time.
+     */
+    public static class Snapshot {
+        public final Map<String, Long> counters;
+        public final Map<String, HistogramSnapshot> histograms;
+
+        private Snapshot(final Map<String, Long> counters, final Map<String, HistogramSnapshot> histograms) {
+            this.counters = Collections.unmodifiableMap(counters);
+            this.histograms = Collections.unmodifiableMap(histograms);
+        }
+
+        public long counter(final String name) {
+            final Long value = counters.get(name);
+            return value == null ? 0 : value;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder builder = new StringBuilder();
+            for (final Map.Entry<String, Long> counter : counters.entrySet())
+                builder.append(counter.getKey()).append(": ").append(counter.getValue()).append('\n');
+            for (final Map.Entry<String, HistogramSnapshot> histogram : histograms.entrySet())
+                builder.append(histogram.getKey()).append(": ").append(histogram.getValue()).append('\n');
+            return builder.toString();
+        }
+    }
+
+    /**
+     * The JMX view of the metrics.
+     */
+    public interface MetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean enabled);
+
+        Map<String, Long> getCounters();
+
+        Map<String, String> getHistograms();
+
+        void reset();
+    }
+
+    private static class MBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(final boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public Map<String, Long> getCounters() {
+            return snapshot().counters;
+        }
+
+        @Override
+        public Map<String, String> getHistograms() {
+            final Map<String, String> values = new TreeMap<>();
+            for (final Map.Entry<String, HistogramSnapshot> histogram : snapshot().histograms.entrySet())
+                values.put(histogram.getKey(), histogram.getValue().toString());
+            return values;
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package utils;
+
+/**
+ * Static class that emits a Java Flight Recorder event ("monero.Proof") for each proof operation, with its
+ * duration, the shape of the proof and its outcome.
+ * <p>
+ * Events are only created while a recording with the event enabled is running, which is controlled by the JFR
+ * settings alone (e.g. "monero.Proof#enabled=false" to leave them out). On runtimes without JFR nothing is
+ * emitted.
+ */
+public class ProofEvents {
+
+    private static final boolean available = isAvailable();
+    private static final Event NONE = new Event(null, null);
+
+    private ProofEvents() {
+    }
+
+    /**
+     * Starts timing an operation. Close the event when the operation ends.
+     *
+     * @param operation The operation name, such as "BulletProof.prove".
+     * @return The event, which ignores every value when no recording wants it.
+     */
+    public static Event begin(final String operation) {
+        if (!available) return NONE;
+        final Object event = JfrProofEvent.start();
+        return event == null ? NONE : new Event(operation, event);
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (final ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The values of one operation, committed to the recording when closed.
+     */
+    public static class Event implements AutoCloseable {
+        final String operation;
+        private final Object event;
+        int ringSize;
+        int inputs;
+        int decompositionBase;
+        int decompositionExponent;
+        int multiExpSize;
+        String outcome;
+
+        private Event(final String operation, final Object event) {
+            this.operation = operation;
+            this.event = event;
+        }
+
+        public Event ringSize(final int ringSize) {
+            if (event != null) this.ringSize = ringSize;
+            return this;
+        }
+
+        public Event inputs(final int inputs) {
+            if (event != null) this.inputs = inputs;
+            return this;
+        }
+
+        public Event decomposition(final int decompositionBase, final int decompositionExponent) {
+            if (event != null) {
+                this.decompositionBase = decompositionBase;
+                this.decompositionExponent = decompositionExponent;
+            }
+            return this;
+        }
+
+        /**
+         * Sets the number of points in the largest multi-scalar multiplication of the operation.
+         *
+         * @param multiExpSize The number of points.
+         * @return This event.
+         */
+        public Event multiExpSize(final int multiExpSize) {
+            if (event != null) this.multiExpSize = multiExpSize;
+            return this;
+        }
+
+        /**
+         * Records the outcome of a check.
+         *
+         * @param valid Whether the check passed.
+         * @return valid.
+         */
+        public boolean result(final boolean valid) {
+            if (event != null) outcome = valid ? "valid" : "invalid";
+            return valid;
+        }
+
+        /**
+         * Records that the operation produced its value.
+         *
+         * @param value The value.
+         * @param <T>   The value type.
+         * @return value.
+         */
+        public <T> T result(final T value) {
+            if (event != null) outcome = "ok";
+            return value;
+        }
+
+        /**
+         * Ends the operation and commits the event. Without a result the outcome is "error".
+         */
+        @Override
+        public void close() {
+            if (event == null) return;
+            if (outcome == null) outcome = "error";
+            JfrProofEvent.commit(event, this);
+        }
+    }
+}
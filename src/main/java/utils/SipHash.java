@@ -0,0 +1,66 @@
+package utils;
+
+/**
+ * Static class that computes SipHash-2-4, a keyed hash for hash tables whose keys an attacker may choose.
+ */
+public class SipHash {
+
+    private SipHash() {
+    }
+
+    /**
+     * Hashes the data with a 128 bit key.
+     *
+     * @param k0   The low 64 bits of the key.
+     * @param k1   The high 64 bits of the key.
+     * @param data The data.
+     * @return The 64 bit hash.
+     */
+    public static long hash(final long k0, final long k1, final byte[] data) {
+        final long[] v = {
+                k0 ^ 0x736f6d6570736575L,
+                k1 ^ 0x646f72616e646f6dL,
+                k0 ^ 0x6c7967656e657261L,
+                k1 ^ 0x7465646279746573L
+        };
+
+        final int blocks = data.length / 8;
+        for (int i = 0; i < blocks; i++) {
+            final long m = littleEndian(data, 8 * i, 8);
+            v[3] ^= m;
+            round(v);
+            round(v);
+            v[0] ^= m;
+        }
+
+        // the remaining bytes, with the length in the top byte
+        final long last = littleEndian(data, 8 * blocks, data.length - 8 * blocks) | ((long) data.length << 56);
+        v[3] ^= last;
+        round(v);
+        round(v);
+        v[0] ^= last;
+
+        v[2] ^= 0xff;
+        for (int i = 0; i < 4; i++) round(v);
+        return v[0] ^ v[1] ^ v[2] ^ v[3];
+    }
+
+    private static void round(final long[] v) {
+        v[0] += v[1];
+        v[1] = Long.rotateLeft(v[1], 13) ^ v[0];
+        v[0] = Long.rotateLeft(v[0], 32);
+        v[2] += v[3];
+        v[3] = Long.rotateLeft(v[3], 16) ^ v[2];
+        v[0] += v[3];
+        v[3] = Long.rotateLeft(v[3], 21) ^ v[0];
+        v[2] += v[1];
+        v[1] = Long.rotateLeft(v[1], 17) ^ v[2];
+        v[2] = Long.rotateLeft(v[2], 32);
+    }
+
+    private static long littleEndian(final byte[] data, final int offset, final int length) {
+        long value = 0;
+        for (int i = length - 1; i >= 0; i--) value = value << 8 | (data[offset + i] & 0xff);
+        return value;
+    }
+}
@@ -0,0 +1,54 @@
+package crypto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class KeccakRandomTests {
+
+    @Test
+    public void seededGeneratorsAgree() {
+        byte[] seed = "seed".getBytes();
+        byte[] a = new byte[100];
+        byte[] b = new byte[100];
+        new KeccakRandom(seed).nextBytes(a);
+        new KeccakRandom(seed).nextBytes(b);
+        assertArrayEquals(a, b);
+
+        KeccakRandom random = new KeccakRandom(seed);
+        random.nextBytes(b);
+        random.nextBytes(b);
+        assertFalse(Arrays.equals(a, b));
+    }
+
+    @Test(expected = NotSerializableException.class)
+    public void keyIsNeverSerialized() throws IOException {
+        new ObjectOutputStream(new ByteArrayOutputStream()).writeObject(new KeccakRandom("seed".getBytes()));
+    }
+
+    @Test
+    public void wideReductionMatchesBigInteger() {
+        KeccakRandom random = new KeccakRandom("reduce".getBytes());
+        for (Scalar s : Scalar.randomScalars(20, random)) {
+            BigInteger value = s.toBigInteger();
+            assertEquals(value.mod(CryptoUtil.l), value);
+        }
+
+        byte[] wide = new byte[64];
+        new KeccakRandom("reduce".getBytes()).nextBytes(wide);
+        byte[] bigEndian = new byte[64];
+        for (int i = 0; i < 64; i++) bigEndian[i] = wide[63 - i];
+        BigInteger expected = new BigInteger(1, bigEndian).mod(CryptoUtil.l);
+        assertEquals(expected, Scalar.randomScalar(new KeccakRandom("reduce".getBytes())).toBigInteger());
+    }
+
+}
@@ -0,0 +1,87 @@
+package crypto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ScalarTests {
+
+    @Test
+    public void inversesMatchModInverse() {
+        Scalar[] a = Scalar.randomScalars(10, new KeccakRandom("invert".getBytes()));
+        a[3] = Scalar.ONE;
+        a[7] = Scalar.MINUS_ONE;
+
+        Scalar[] inverses = Scalar.invertAll(a);
+        for (int i = 0; i < a.length; i++) {
+            Scalar expected = new Scalar(a[i].toBigInteger().modInverse(CryptoUtil.l));
+            assertEquals(expected, a[i].invert());
+            assertEquals(expected, inverses[i]);
+            assertEquals(Scalar.ONE, a[i].mul(inverses[i]));
+        }
+    }
+
+    @Test
+    public void challengeProductsMatchBitwiseProducts() {
+        Scalar[] w = Scalar.randomScalars(4, new KeccakRandom("challenges".getBytes()));
+        Scalar[] wInverse = Scalar.invertAll(w);
+
+        ScalarVector s = ScalarVector.challengeProducts(w, wInverse);
+        assertEquals(16, s.size());
+        for (int i = 0; i < 16; i++) {
+            Scalar expected = Scalar.ONE;
+            for (int j = 0; j < 4; j++) expected = expected.mul((i >> (3 - j) & 1) == 1 ? w[j] : wInverse[j]);
+            assertEquals(expected, s.get(i));
+        }
+    }
+
+    @Test
+    public void vectorOperationsMatchScalarArithmetic() {
+        KeccakRandom random = new KeccakRandom("vectors".getBytes());
+        Scalar[] a = Scalar.randomScalars(64, random);
+        Scalar[] b = Scalar.randomScalars(64, random);
+        Scalar[] c = Scalar.randomScalars(64, random);
+        a[0] = Scalar.MINUS_ONE;
+        b[0] = Scalar.MINUS_ONE;
+        Scalar k = Scalar.randomScalar(random);
+
+        Scalar expectedProduct = Scalar.ZERO;
+        for (int i = 0; i < 64; i++) expectedProduct = expectedProduct.add(a[i].mul(b[i]));
+        assertEquals(expectedProduct, new ScalarVector(a).innerProduct(new ScalarVector(b)));
+
+        ScalarVector v = new ScalarVector(a);
+        v.slice(32, 64).scale(k).axpy(k, new ScalarVector(b).slice(0, 32)).hadamardAccumulate(new ScalarVector(b)
+                .slice(32, 64), new ScalarVector(c).slice(32, 64)).subtract(new ScalarVector(c).slice(0, 32))
+                .addConstant(k);
+        v.slice(0, 32).hadamard(new ScalarVector(c).slice(0, 32)).add(new ScalarVector(b).slice(0, 32));
+        for (int i = 0; i < 32; i++) {
+            assertEquals(a[i].mul(c[i]).add(b[i]), v.get(i));
+            Scalar expected = a[32 + i].mul(k).add(k.mul(b[i])).add(b[32 + i].mul(c[32 + i])).sub(c[i]).add(k);
+            assertEquals(expected, v.get(32 + i));
+        }
+    }
+
+    @Test
+    public void fusedOperationsMatchSeparateOnes() {
+        Scalar[] a = Scalar.randomScalars(32, new KeccakRandom("fused".getBytes()));
+        Scalar[] b = Scalar.randomScalars(32, new KeccakRandom("fused b".getBytes()));
+        a[0] = Scalar.ZERO;
+        a[1] = Scalar.MINUS_ONE;
+        b[1] = Scalar.MINUS_ONE;
+
+        Scalar expectedProduct = Scalar.ZERO;
+        for (int i = 0; i < a.length; i++) {
+            Scalar c = b[(i + 1) % b.length];
+            assertEquals(a[i].mul(b[i]).add(c), a[i].muladd(b[i], c));
+            assertEquals(c.sub(a[i].mul(b[i])), a[i].mulsub(b[i], c));
+            expectedProduct = expectedProduct.add(a[i].mul(b[i]));
+        }
+        assertEquals(expectedProduct, Scalar.innerProduct(a, b));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void zeroHasNoInverse() {
+        Scalar.invertAll(new Scalar[]{Scalar.ONE, Scalar.ZERO});
+    }
+
+}
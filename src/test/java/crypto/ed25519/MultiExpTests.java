@@ -0,0 +1,138 @@
+package crypto.ed25519;
+
+import crypto.Scalar;
+import org.junit.Test;
+import utils.ArrayUtils;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiExpTests {
+
+    private static void assertMatchesNaive(int n) {
+        Ed25519Point[] points = new Ed25519Point[n];
+        Scalar[] scalars = new Scalar[n];
+        Ed25519Point expected = Ed25519Point.ZERO;
+        for (int i = 0; i < n; i++) {
+            points[i] = Ed25519Point.randomPoint();
+            scalars[i] = Scalar.randomScalar();
+            expected = expected.add(points[i].scalarMultiply(scalars[i]));
+        }
+        assertEquals(expected, MultiExp.multiply(points, scalars));
+    }
+
+    @Test
+    public void strausMatchesNaive() {
+        assertMatchesNaive(1);
+        assertMatchesNaive(7);
+    }
+
+    @Test
+    public void pippengerMatchesNaive() {
+        assertMatchesNaive(40);
+        assertMatchesNaive(300);
+    }
+
+    @Test
+    public void pippengerReadsUnreducedScalars() {
+        Ed25519Point[] points = new Ed25519Point[40];
+        Scalar[] scalars = new Scalar[points.length];
+        Ed25519Point expected = Ed25519Point.ZERO;
+        for (int i = 0; i < points.length; i++) {
+            points[i] = Ed25519Point.randomPoint();
+            scalars[i] = Scalar.randomScalar();
+            scalars[i].bytes[31] |= (byte) 0xe0;
+            expected = expected.add(points[i].scalarMultiply(scalars[i]));
+        }
+        assertEquals(expected, MultiExp.multiply(points, scalars));
+    }
+
+    @Test
+    public void pointVectorMatchesPoints() {
+        Ed25519Point[] points = new Ed25519Point[40];
+        for (int i = 0; i < points.length; i++) points[i] = Ed25519Point.randomPoint().add(Ed25519Point.randomPoint());
+        points[3] = Ed25519Point.ZERO;
+        Scalar[] scalars = Scalar.randomScalars(points.length);
+
+        for (PointVector vector : new PointVector[]{PointVector.of(points), PointVector.ofDirect(points)}) {
+            for (int i = 0; i < points.length; i++) {
+                assertEquals(points[i], vector.get(i));
+                assertArrayEquals(points[i].toBytes(), vector.toBytes(i));
+            }
+            assertEquals(MultiExp.multiply(points, scalars), MultiExp.multiply(vector, scalars));
+
+            // slices write through to the vector they view
+            vector.slice(30, 40).set(2, Ed25519Point.G);
+            assertEquals(Ed25519Point.G, vector.get(32));
+            assertEquals(points[32], vector.copy().set(32, points[32]).get(32));
+            assertEquals(Ed25519Point.G, vector.get(32));
+        }
+    }
+
+    @Test
+    public void pointAccumulatorMatchesAdditions() {
+        Ed25519Point[] points = new Ed25519Point[8];
+        for (int i = 0; i < points.length; i++) points[i] = Ed25519Point.randomPoint().add(Ed25519Point.randomPoint());
+        PointVector vector = PointVector.of(points);
+
+        PointAccumulator sum = new PointAccumulator();
+        Ed25519Point expected = Ed25519Point.ZERO;
+        for (int i = 0; i < points.length; i++) {
+            sum.add(points[i]).add(vector, i);
+            expected = expected.add(points[i]).add(points[i]);
+        }
+        assertEquals(expected, sum.toPoint());
+
+        sum.subtract(points[2]).twice().add(new PointAccumulator(points[5]).add(points[5]));
+        expected = expected.sub(points[2]).add(expected.sub(points[2])).add(points[5].add(points[5]));
+        assertEquals(expected, sum.toPoint());
+        assertArrayEquals(expected.toBytes(), sum.toPoint().toBytes());
+
+        PointAccumulator cancelled = new PointAccumulator(points[0]).add(points[1]).subtract(points[1]);
+        assertEquals(points[0], cancelled.toPoint());
+        assertTrue(cancelled.subtract(points[0]).isIdentity());
+        assertEquals(Ed25519Point.ZERO, cancelled.toPoint());
+    }
+
+    @Test
+    public void encodeAllMatchesEncodingEachPoint() {
+        Ed25519Point[] points = new Ed25519Point[6];
+        for (int i = 0; i < points.length; i++) points[i] = Ed25519Point.randomPoint().add(Ed25519Point.randomPoint());
+        points[3] = Ed25519Point.ZERO;
+
+        byte[] expected = new byte[0];
+        for (Ed25519Point point : points) expected = ArrayUtils.concat(expected, point.toBytes());
+        assertArrayEquals(expected, Ed25519Point.encodeAll(points));
+        assertArrayEquals(expected, PointVector.of(points).toBytes());
+
+        ByteBuffer out = ByteBuffer.allocate(expected.length);
+        Ed25519Point.encodeAll(points, out);
+        assertArrayEquals(expected, out.array());
+
+        byte[][] each = Ed25519Point.encodeEach(points);
+        for (int i = 0; i < points.length; i++) assertArrayEquals(points[i].toBytes(), each[i]);
+    }
+
+    @Test
+    public void projectiveEqualsMatchesNormalizedEquality() {
+        Ed25519Point a = Ed25519Point.randomPoint(), b = Ed25519Point.randomPoint();
+        Ed25519Point sum = a.add(b);
+        Ed25519Point normalized = new Ed25519Point(sum.point.normalize());
+
+        assertTrue(sum.projectiveEquals(normalized));
+        assertTrue(normalized.projectiveEquals(sum));
+        assertTrue(sum.projectiveEquals(b.add(a).add(a).sub(a)));
+        assertFalse(sum.projectiveEquals(a.add(a)));
+        assertFalse(sum.projectiveEquals(Ed25519Point.ZERO));
+
+        assertTrue(sum.sub(normalized).isIdentity());
+        assertFalse(sum.isIdentity());
+        assertTrue(new Ed25519PointPair(a, b).subtract(new Ed25519PointPair(a, b)).isIdentity());
+        assertTrue(new Ed25519PointPair(sum, a).equals(new Ed25519PointPair(normalized, a.add(b).sub(b))));
+    }
+
+}
@@ -0,0 +1,120 @@
+package ringct;
+
+import crypto.Scalar;
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.MultiExpTerms;
+import org.junit.Test;
+import ringct.proofs.BulletProof;
+import ringct.proofs.Proof2;
+import ringct.signatures.MultiSignature;
+import ringct.signatures.SpendSignature;
+
+import java.util.Arrays;
+
+import static crypto.CryptoUtil.randomMessage;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ringct.RingCTSpendTests.createTestSpendParams;
+
+public class BatchVerificationTests {
+
+    private static SpendSignature[] createTestSignatures(int count, int inputs, int decompositionBase,
+                                                         int decompositionExponent) {
+        SpendSignature[] signatures = new SpendSignature[count];
+        for (int i = 0; i < count; i++) {
+            SpendParams sp = createTestSpendParams(inputs, decompositionBase, decompositionExponent);
+            signatures[i] = sp.sign(sp.getRingCT());
+        }
+        return signatures;
+    }
+
+    @Test
+    public void proof1BatchIsolatesInvalidSignature() {
+        SpendSignature[] signatures = createTestSignatures(5, 1, 2, 3);
+
+        assertArrayEquals(new boolean[]{true, true, true, true, true}, SpendSignature.verifyProof1Batch(signatures));
+
+        // Proof1 of signature 3 checked against the commitment of signature 0
+        Proof2 original = signatures[3].signature;
+        signatures[3] = new SpendSignature(signatures[3].decompositionBase, signatures[3].decompositionExponent,
+                signatures[3].commitment, new Proof2(original.P, signatures[0].signature.B, original.G, original.z),
+                signatures[3].multiSig);
+
+        assertArrayEquals(new boolean[]{true, true, true, false, true}, SpendSignature.verifyProof1Batch(signatures));
+    }
+
+    @Test
+    public void multiSignatureBatchIsolatesInvalidSignature() {
+        int count = 4;
+        byte[][] M = new byte[count][];
+        Ed25519Point[][] X = new Ed25519Point[count][];
+        MultiSignature.Signature[] signatures = new MultiSignature.Signature[count];
+
+        for (int j = 0; j < count; j++) {
+            int n = j + 1;
+            Scalar[] x = new Scalar[n];
+            X[j] = new Ed25519Point[n];
+            for (int i = 0; i < n; i++) {
+                MultiSignature.KeyPair keyPair = MultiSignature.keygen();
+                x[i] = keyPair.x;
+                X[j][i] = keyPair.X;
+            }
+            M[j] = randomMessage(32);
+            signatures[j] = MultiSignature.sign(M[j], x, X[j]);
+        }
+
+        assertArrayEquals(new boolean[]{true, true, true, true}, MultiSignature.verifyBatch(M, X, signatures));
+
+        M[1] = randomMessage(32);
+        assertArrayEquals(new boolean[]{true, false, true, true}, MultiSignature.verifyBatch(M, X, signatures));
+    }
+
+    @Test
+    public void truncatedBulletProofIsRejected() {
+        BulletProof proof = BulletProof.prove(Scalar.intToScalar(7), Scalar.randomScalar());
+        BulletProof truncated = new BulletProof(proof.V, proof.A, proof.S, proof.T1, proof.T2, proof.taux, proof.mu,
+                Arrays.copyOf(proof.L, 5), Arrays.copyOf(proof.R, 5), proof.a, proof.b, proof.t);
+
+        assertTrue(proof.verify());
+        assertFalse(truncated.verify());
+        assertArrayEquals(new boolean[]{true, false}, MultiExpTerms.verifyEach(Arrays.asList(proof
+                .verificationTerms(), truncated.verificationTerms())));
+    }
+
+    @Test
+    public void identityKeyIsRejected() {
+        MultiSignature.KeyPair keyPair = MultiSignature.keygen();
+        byte[] M = randomMessage(32);
+        MultiSignature.Signature signature = MultiSignature.sign(M, new Scalar[]{keyPair.x}, new Ed25519Point[]{keyPair
+                .X});
+        Ed25519Point[] identity = {Ed25519Point.ZERO};
+
+        assertTrue(MultiSignature.verify(M, new Ed25519Point[]{keyPair.X}, signature));
+        assertFalse(MultiSignature.verify(M, identity, signature));
+        assertArrayEquals(new boolean[]{true, false}, MultiSignature.verifyBatch(new byte[][]{M, M}, new
+                Ed25519Point[][]{{keyPair.X}, identity}, new MultiSignature.Signature[]{signature, signature}));
+    }
+
+    @Test
+    public void batchVerifierIsolatesInvalidTransaction() {
+        int count = 3;
+        SpendParams[] sp = new SpendParams[count];
+        SpendSignature[] signatures = new SpendSignature[count];
+        for (int i = 0; i < count; i++) {
+            sp[i] = createTestSpendParams(2, 2, 3);
+            signatures[i] = sp[i].sign(sp[i].getRingCT());
+        }
+
+        BatchVerifier verifier = new BatchVerifier();
+        for (int i = 0; i < count; i++) verifier.add(sp[i].getRingCT(), signatures[i], sp[i].getBulletProofs());
+        assertArrayEquals(new boolean[]{true, true, true}, verifier.verify());
+
+        verifier = new BatchVerifier();
+        verifier.add(sp[0].getRingCT(), signatures[0], sp[0].getBulletProofs());
+        verifier.add(sp[1].getRingCT(), signatures[2], sp[1].getBulletProofs());
+        verifier.add(sp[2].getRingCT(), signatures[2], sp[2].getBulletProofs());
+        assertArrayEquals(new boolean[]{true, false, true}, verifier.verify());
+    }
+
+}
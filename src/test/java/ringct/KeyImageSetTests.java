@@ -0,0 +1,99 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyImageSetTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Ed25519Point[] randomKeyImages(int n) {
+        Ed25519Point[] keyImages = new Ed25519Point[n];
+        for (int i = 0; i < n; i++) keyImages[i] = Ed25519Point.randomPoint();
+        return keyImages;
+    }
+
+    @Test
+    public void rejectsDoubleSpendsAndRollsBack() throws IOException {
+        File path = folder.newFile("keyimages.bin");
+        path.delete();
+
+        // enough blocks to force the table to grow past its initial capacity
+        Ed25519Point[][] blocks = new Ed25519Point[12][];
+        try (KeyImageSet set = new KeyImageSet(path)) {
+            for (int height = 0; height < blocks.length; height++) {
+                blocks[height] = randomKeyImages(100);
+                assertTrue(set.addBlock(height, blocks[height]));
+            }
+            assertEquals(1200, set.size());
+
+            // double spend of an earlier key image, nothing of the block is added
+            Ed25519Point fresh = Ed25519Point.randomPoint();
+            assertFalse(set.addBlock(12, new Ed25519Point[]{fresh, blocks[3][7]}));
+            assertFalse(set.contains(fresh));
+
+            // duplicate within one block
+            assertFalse(set.addBlock(12, new Ed25519Point[]{fresh, fresh}));
+        }
+
+        try (KeyImageSet set = new KeyImageSet(path)) {
+            assertEquals(1200, set.size());
+            assertEquals(11, set.getTopHeight());
+
+            set.rollback(5);
+            assertEquals(600, set.size());
+            for (int height = 0; height < blocks.length; height++) {
+                for (Ed25519Point keyImage : blocks[height]) assertEquals(height <= 5, set.contains(keyImage));
+            }
+
+            // the rolled back key images can be spent again
+            assertTrue(set.addBlock(6, blocks[9]));
+        }
+    }
+
+    @Test
+    public void dropsBlockCutShortByCrash() throws IOException {
+        File path = new File(folder.getRoot(), "keyimages.bin");
+        Ed25519Point[] first = randomKeyImages(10);
+        Ed25519Point[] second = randomKeyImages(10);
+        try (KeyImageSet set = new KeyImageSet(path)) {
+            assertTrue(set.addBlock(1, first));
+            assertTrue(set.addBlock(2, second));
+        }
+
+        // a crash after the slots of block 2 were written but before the header was
+        try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+            file.seek(16);
+            file.writeLong(10);
+            file.writeLong(1);
+        }
+
+        try (KeyImageSet set = new KeyImageSet(path)) {
+            assertEquals(10, set.size());
+            assertEquals(1, set.getTopHeight());
+            assertTrue(set.contains(first[0]));
+            assertFalse(set.contains(second[0]));
+            assertTrue(set.addBlock(2, second));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void onlyOneWriter() throws IOException {
+        File path = new File(folder.getRoot(), "keyimages.bin");
+        try (KeyImageSet ignored = new KeyImageSet(path)) {
+            new KeyImageSet(path);
+        }
+    }
+
+}
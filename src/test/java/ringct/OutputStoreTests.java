@@ -0,0 +1,57 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import crypto.ed25519.Ed25519PointPair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OutputStoreTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resolvesRingsFromRelativeOffsets() throws IOException {
+        File path = folder.newFile("outputs.bin");
+
+        int outputs = 10;
+        Ed25519PointPair[] publicKeys = new Ed25519PointPair[outputs];
+        Ed25519Point[] commitments = new Ed25519Point[outputs];
+
+        try (OutputStore store = new OutputStore(path)) {
+            for (int i = 0; i < outputs; i++) {
+                publicKeys[i] = KeyPair.generateRandom().getPublicKey();
+                commitments[i] = Ed25519Point.randomPoint();
+                assertEquals(i, store.append(publicKeys[i], commitments[i]));
+            }
+        }
+
+        // reopen to check the outputs were persisted
+        try (OutputStore store = new OutputStore(path)) {
+            assertEquals(outputs, store.size());
+
+            long[][] keyOffsets = new long[][]{
+                    OutputStore.toRelativeOffsets(new long[]{1, 4, 5, 9}),
+                    OutputStore.toRelativeOffsets(new long[]{0, 2, 3, 7})
+            };
+            assertArrayEquals(new long[]{1, 3, 1, 4}, keyOffsets[0]);
+
+            Ed25519PointPair[][] ring = store.resolvePublicKeys(keyOffsets);
+            assertTrue(ring[0][1].equals(publicKeys[4]));
+            assertTrue(ring[1][3].equals(publicKeys[7]));
+
+            Ed25519Point outputSum = Ed25519Point.randomPoint();
+            Ed25519Point[] ringCommitments = store.resolveCommitments(keyOffsets, outputSum);
+            assertEquals(commitments[5].add(commitments[3]).sub(outputSum), ringCommitments[2]);
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package ringct;
 import crypto.ed25519.Ed25519Point;
 import org.junit.Test;
 import ringct.signatures.SpendSignature;
+import utils.Metrics;
 
 import java.io.File;
 import java.io.IOException;
@@ -18,6 +19,7 @@ public class RingCTBenchmarks {
 
     @Test
     public void spendTest() throws IOException {
+        Metrics.setEnabled(true);
         int[] inputsVariants = new int[]{1, 2, 3, 4, 5, 10, 20};
         int[] decompositionExponentVariants = new int[]{2, 3, 4, 5, 6};
 
@@ -57,12 +59,11 @@ public class RingCTBenchmarks {
                 // send them
                 SpendSignature[] spendSignature = new SpendSignature[testIterations];
                 for (int i = 0; i < testIterations; i++) {
-                    Ed25519Point.scalarMults = 0;
-                    Ed25519Point.scalarBaseMults = 0;
+                    Metrics.reset();
                     spendSignature[i] = sp[i].sign(sp[i].getRingCT());
                 }
-                int spendScalarMults = Ed25519Point.scalarMults;
-                int spendScalarBaseMults = Ed25519Point.scalarBaseMults;
+                long spendScalarMults = Ed25519Point.scalarMults.sum();
+                long spendScalarBaseMults = Ed25519Point.scalarBaseMults.sum();
 
                 long spendSignatureGenerationDuration = (new Date().getTime() - startMs);
                 System.out.println("Spend signature generation duration: " + spendSignatureGenerationDuration + " ms");
@@ -75,8 +76,7 @@ public class RingCTBenchmarks {
 
                 // verify the spend transaction
                 for (int i = 0; i < testIterations; i++) {
-                    Ed25519Point.scalarMults = 0;
-                    Ed25519Point.scalarBaseMults = 0;
+                    Metrics.reset();
 
                     RingCT ringCT = new RingCT(sp[i].getKeyImages(), sp[i].getPublicKeys(), sp[i].commitments, spendSignature[i].commitment, sp[i].getBulletProofs());
 
@@ -84,8 +84,8 @@ public class RingCTBenchmarks {
                     System.out.println("verified: " + verified);
                     assertTrue(verified);
                 }
-                int verifyScalarMults = Ed25519Point.scalarMults;
-                int verifyScalarBaseMults = Ed25519Point.scalarBaseMults;
+                long verifyScalarMults = Ed25519Point.scalarMults.sum();
+                long verifyScalarBaseMults = Ed25519Point.scalarBaseMults.sum();
 
 
                 long spendSignatureVerificationDuration = (new Date().getTime() - startMs);
@@ -1,15 +1,25 @@
 package ringct;
 
+import crypto.KeccakRandom;
 import crypto.Scalar;
 import crypto.ed25519.Ed25519Point;
 import org.junit.Test;
 import ringct.signatures.SpendSignature;
+import utils.CallSiteProfiler;
+import utils.ConcurrencyUtils;
+import utils.Metrics;
 
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static crypto.CryptoUtil.getHpnGLookup;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class RingCTSpendTests {
@@ -17,6 +27,7 @@ public class RingCTSpendTests {
     @Test
     public void spendTest() {
         long startTime = new Date().getTime();
+        Metrics.setEnabled(true);
 
         int testIterations = 1;
         int decompositionBase = 2;
@@ -32,8 +43,7 @@ public class RingCTSpendTests {
             sp[i] = createTestSpendParams(inputs, decompositionBase, decompositionExponent);
         System.out.println("Spend params generation duration: " + (new Date().getTime() - startMs) + " ms");
 
-        Ed25519Point.scalarMults = 0;
-        Ed25519Point.scalarBaseMults = 0;
+        Metrics.reset();
 
         startMs = new Date().getTime();
         // create a transaction to spend the outputs, resulting in a signature that proves the authority to send them
@@ -50,13 +60,12 @@ public class RingCTSpendTests {
 
         startMs = new Date().getTime();
 
-        System.out.println("Spend ScalarMults: " + Ed25519Point.scalarMults);
-        System.out.println("Spend BaseScalarMults: " + Ed25519Point.scalarBaseMults);
-        Ed25519Point.scalarMults = 0;
-        Ed25519Point.scalarBaseMults = 0;
+        System.out.println("Spend ScalarMults: " + Ed25519Point.scalarMults.sum());
+        System.out.println("Spend BaseScalarMults: " + Ed25519Point.scalarBaseMults.sum());
+        Metrics.reset();
 
-        //Ed25519GroupElement.enableLineRecording = true;
-        Ed25519Point.lineRecordingSourceFile = "StringCT.java";
+        CallSiteProfiler.setEnabled(true);
+        CallSiteProfiler.reset();
 
         // verify the spend transaction
         for (int i = 0; i < testIterations; i++) {
@@ -67,14 +76,20 @@ public class RingCTSpendTests {
             assertTrue(verified);
         }
 
-        System.out.println("Verify ScalarMults: " + Ed25519Point.scalarMults);
-        System.out.println("Verify BaseScalarMults: " + Ed25519Point.scalarBaseMults);
+        System.out.println("Verify ScalarMults: " + Ed25519Point.scalarMults.sum());
+        System.out.println("Verify BaseScalarMults: " + Ed25519Point.scalarBaseMults.sum());
+        assertTrue(Ed25519Point.scalarMults.sum() > 0);
+        assertEquals(testIterations, Metrics.snapshot().histograms.get("Proof2.isValid").count);
+        Metrics.setEnabled(false);
+
+        CallSiteProfiler.Snapshot profile = CallSiteProfiler.snapshot();
+        CallSiteProfiler.setEnabled(false);
+        assertTrue(profile.phases.keySet().stream().anyMatch(phase -> phase.startsWith("Proof2.isValid > proof1 > " +
+                "Proof1.isValid")));
 
         System.out.println("Signature verification duration: " + (new Date().getTime() - startMs) + " ms");
 
-        if (Ed25519Point.enableLineRecording) {
-            Ed25519Point.lineNumberCallFrequencyMap.forEach((key, value) -> System.out.println("line: " + key + ", calls: " + value));
-        }
+        System.out.print(profile);
 
         System.out.println("Total duration: " + (new Date().getTime() - startTime) + " ms");
     }
@@ -137,6 +152,99 @@ public class RingCTSpendTests {
         assertTrue(verified);
     }
 
+    @Test
+    public void spendWithPrefilledDecoyPool() {
+        int decompositionBase = 2;
+        int decompositionExponent = 4;
+        int ringSize = (int) Math.pow(decompositionBase, decompositionExponent);
+
+        DecoyPool decoys = new DecoyPool();
+        decoys.fill(ringSize - 1, ringSize - 1);
+
+        Coin input = Coin.newOutput(Scalar.intToScalar(10));
+        Coin output = Coin.newOutput(Scalar.intToScalar(10));
+
+        SpendParams spendParams = new SpendParams(new Coin[]{input}, new Coin[]{output}, decompositionBase,
+                decompositionExponent, decoys);
+        assertEquals(0, decoys.availablePublicKeys());
+        assertEquals(0, decoys.availableCommitments());
+
+        SpendSignature signature = spendParams.sign(spendParams.getRingCT());
+        assertTrue(spendParams.getRingCT().verify(signature));
+    }
+
+    @Test
+    public void signAndVerifyAsync() {
+        SpendParams spendParams = createTestSpendParams(2, 2, 4);
+        RingCT ringCT = spendParams.getRingCT();
+
+        SpendSignature signature = spendParams.signAsync(ringCT).join();
+        assertTrue(ringCT.verifyAsync(signature).join());
+        assertTrue(ringCT.verify(SpendSignature.fromBytes(signature.toBytes())));
+    }
+
+    @Test
+    public void signAsyncOnSingleThreadExecutor() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        Executor previous = ConcurrencyUtils.getExecutor();
+        ConcurrencyUtils.setExecutor(pool);
+        try {
+            SpendParams spendParams = createTestSpendParams(1, 2, 4);
+            RingCT ringCT = spendParams.getRingCT();
+            SpendSignature signature = spendParams.signAsync(ringCT).get(60, TimeUnit.SECONDS);
+            assertTrue(ringCT.verify(signature));
+        } finally {
+            ConcurrencyUtils.setExecutor(previous);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void seededSpendIsReproducible() {
+        SpendParams first = seededSpend("seed");
+        SpendParams second = seededSpend("seed");
+        assertArrayEquals(first.getRingCT().toBytes(), second.getRingCT().toBytes());
+
+        byte[] signature = first.sign(first.getRingCT()).toBytes();
+        assertArrayEquals(signature, second.sign(second.getRingCT()).toBytes());
+        assertTrue(first.getRingCT().verify(SpendSignature.fromBytes(signature)));
+    }
+
+    private static SpendParams seededSpend(String seed) {
+        KeccakRandom random = new KeccakRandom(seed.getBytes());
+        Coin input = Coin.newOutput(Scalar.intToScalar(10), random);
+        Coin output = Coin.newOutput(Scalar.intToScalar(10), random);
+        return new SpendParams(new Coin[]{input}, new Coin[]{output}, 2, 3, new DecoyGenerator(seed.getBytes()),
+                random);
+    }
+
+    @Test
+    public void newOutputsKeepOrder() {
+        Scalar[] amounts = {Scalar.intToScalar(1), Scalar.intToScalar(2), Scalar.intToScalar(3)};
+        Coin[] outputs = Coin.newOutputs(amounts);
+
+        assertEquals(amounts.length, outputs.length);
+        for (int i = 0; i < amounts.length; i++) {
+            assertEquals(amounts[i], outputs[i].amount);
+            assertTrue(outputs[i].bulletProof.verify());
+        }
+    }
+
+    @Test
+    public void seededOutputsAreReproducible() {
+        Scalar[] amounts = {Scalar.intToScalar(1), Scalar.intToScalar(2), Scalar.intToScalar(3)};
+        Coin[] first = Coin.newOutputs(amounts, new KeccakRandom("seed".getBytes()));
+        Coin[] second = Coin.newOutputs(amounts, new KeccakRandom("seed".getBytes()));
+
+        for (int i = 0; i < amounts.length; i++) {
+            assertEquals(first[i].getCommitment(), second[i].getCommitment());
+            assertArrayEquals(first[i].bulletProof.toBytes(), second[i].bulletProof.toBytes());
+        }
+        Coin async = Coin.newOutputAsync(amounts[0], new KeccakRandom("seed".getBytes())).join();
+        assertEquals(async.getCommitment(), Coin.newOutputAsync(amounts[0], new KeccakRandom("seed".getBytes()))
+                .join().getCommitment());
+    }
+
     public static SpendParams createTestSpendParams(int inputs, int decompositionBase, int decompositionExponent) {
         // The owned inputs that are going to be spent
         Coin[] realInputs = new Coin[inputs];
@@ -146,12 +254,11 @@ public class RingCTSpendTests {
 
         // The new outputs to be created (typically one for the recipient one for change)
         BigInteger fee = BigInteger.valueOf(0); //keep fee as zero for now, to avoid overcomplicating things
-        Coin[] outputs = new Coin[2];
-        outputs[0] = Coin.newOutput(realInputs[0].amount.sub(Scalar.TWO));
-        outputs[1] = Coin.newOutput(Arrays.stream(realInputs)
+        Scalar recipientAmount = realInputs[0].amount.sub(Scalar.TWO);
+        Coin[] outputs = Coin.newOutputs(new Scalar[]{recipientAmount, Arrays.stream(realInputs)
                 .map(Coin::getAmount)
                 .reduce(Scalar.ZERO, Scalar::add)
-                .sub(outputs[0].amount));
+                .sub(recipientAmount)});
 
         SpendParams spendParams = new SpendParams(realInputs, outputs, decompositionBase, decompositionExponent);
 
@@ -0,0 +1,55 @@
+package ringct;
+
+import crypto.Scalar;
+import org.junit.Test;
+import ringct.proofs.BulletProof;
+import ringct.signatures.SpendSignature;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static ringct.RingCTSpendTests.createTestSpendParams;
+
+public class VerificationCacheTests {
+
+    @Test
+    public void repeatVerificationsHitUntilExpiry() {
+        AtomicLong now = new AtomicLong();
+        VerificationCache cache = new VerificationCache(10, 1, TimeUnit.SECONDS, now::get);
+
+        SpendParams sp = createTestSpendParams(1, 2, 2);
+        SpendSignature signature = sp.sign(sp.getRingCT());
+
+        assertTrue(cache.verify(sp.getRingCT(), signature, sp.getBulletProofs()));
+        assertTrue(cache.verify(sp.getRingCT(), signature, sp.getBulletProofs()));
+        assertEquals(1, cache.getStats().hits);
+        assertEquals(1, cache.getStats().misses);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertTrue(cache.verify(sp.getRingCT(), signature, sp.getBulletProofs()));
+        assertEquals(1, cache.getStats().hits);
+        assertEquals(2, cache.getStats().misses);
+        assertEquals(1, cache.getStats().evictions);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void hitDoesNotVouchForOtherProofs() {
+        VerificationCache cache = new VerificationCache(10, 1, TimeUnit.MINUTES);
+
+        SpendParams sp = createTestSpendParams(1, 2, 2);
+        SpendSignature signature = sp.sign(sp.getRingCT());
+        assertTrue(cache.verify(sp.getRingCT(), signature, sp.getBulletProofs()));
+
+        BulletProof[] forged = sp.getBulletProofs().clone();
+        BulletProof p = forged[0];
+        forged[0] = new BulletProof(p.V, p.A, p.S, p.T1, p.T2, p.taux, p.mu, p.L, p.R, p.a, p.b, p.t.add(Scalar.ONE));
+        assertFalse(cache.verify(sp.getRingCT(), signature, forged));
+        assertTrue(cache.verify(sp.getRingCT(), signature, sp.getBulletProofs()));
+        assertEquals(1, cache.getStats().hits);
+    }
+
+}
@@ -0,0 +1,127 @@
+package ringct;
+
+import crypto.ed25519.Ed25519Point;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static ringct.RingCTSpendTests.createTestSpendParams;
+
+public class VerificationPipelineTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void verifiesTransactionsWithRingsFromStore() throws Exception {
+        int count = 3;
+        int ringSize = 4;
+
+        try (OutputStore store = new OutputStore(folder.newFile("outputs.bin"));
+             VerificationPipeline pipeline = new VerificationPipeline(VerificationPipeline.fromStore(store), 2, 4,
+                     2)) {
+
+            List<VerificationPipeline.UnverifiedTransaction> transactions = new ArrayList<>();
+            for (int t = 0; t < count; t++) {
+                // single input spends, so each ring commitment is the commitment of its one member
+                SpendParams sp = createTestSpendParams(1, 2, 2);
+                long[] absolute = new long[ringSize];
+                for (int ring = 0; ring < ringSize; ring++) {
+                    absolute[ring] = store.append(sp.getPublicKeys()[0][ring], sp.commitments[ring]);
+                }
+
+                byte[] signature = sp.sign(sp.getRingCT()).toBytes();
+                if (t == 1) signature[signature.length - 1] ^= 1;
+
+                transactions.add(new VerificationPipeline.UnverifiedTransaction(signature, sp.getKeyImages(),
+                        new long[][]{OutputStore.toRelativeOffsets(absolute)}, Ed25519Point.ZERO,
+                        sp.getBulletProofs()));
+            }
+
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (VerificationPipeline.UnverifiedTransaction transaction : transactions) {
+                results.add(pipeline.submit(transaction));
+            }
+
+            assertEquals(true, results.get(0).get());
+            assertEquals(false, results.get(1).get());
+            assertEquals(true, results.get(2).get());
+            assertEquals(count, pipeline.getStages().get(0).getTransactions());
+        }
+    }
+
+    @Test
+    public void closeCancelsQueuedTransactions() throws Exception {
+        CountDownLatch resolving = new CountDownLatch(1);
+        VerificationPipeline pipeline = new VerificationPipeline((transaction, spendSignature) -> {
+            resolving.countDown();
+            new CountDownLatch(1).await();
+            return null;
+        }, 1, 4, 2);
+
+        SpendParams sp = createTestSpendParams(1, 2, 2);
+        VerificationPipeline.UnverifiedTransaction transaction = new VerificationPipeline.UnverifiedTransaction(sp
+                .sign(sp.getRingCT()).toBytes(), sp.getKeyImages(), new long[][]{{0}}, Ed25519Point.ZERO, sp
+                .getBulletProofs());
+        CompletableFuture<Boolean> first = pipeline.submit(transaction);
+        CompletableFuture<Boolean> second = pipeline.submit(transaction);
+        resolving.await();
+        pipeline.close();
+
+        // the interrupted resolve is not a verdict on the transaction
+        try {
+            first.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        try {
+            second.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (CancellationException e) {
+            assertTrue(second.isCompletedExceptionally());
+        }
+    }
+
+    @Test
+    public void missingOutputsFailInsteadOfRejecting() throws Exception {
+        try (OutputStore store = new OutputStore(folder.newFile("outputs.bin"));
+             VerificationPipeline pipeline = new VerificationPipeline(VerificationPipeline.fromStore(store), 1, 4,
+                     2)) {
+            SpendParams sp = createTestSpendParams(1, 2, 2);
+            byte[] signature = sp.sign(sp.getRingCT()).toBytes();
+
+            CompletableFuture<Boolean> missing = pipeline.submit(new VerificationPipeline.UnverifiedTransaction(
+                    signature, sp.getKeyImages(), new long[][]{{0, 1, 1, 1}}, Ed25519Point.ZERO,
+                    sp.getBulletProofs()));
+            CompletableFuture<Boolean> truncated = pipeline.submit(new VerificationPipeline.UnverifiedTransaction(
+                    Arrays.copyOf(signature, 40), sp.getKeyImages(), new long[][]{{0, 1, 1, 1}}, Ed25519Point.ZERO,
+                    sp.getBulletProofs()));
+            CompletableFuture<Boolean> misshapen = pipeline.submit(new VerificationPipeline.UnverifiedTransaction(
+                    signature, sp.getKeyImages(), new long[][]{{0, 1}, {0, 1}}, Ed25519Point.ZERO,
+                    sp.getBulletProofs()));
+
+            try {
+                missing.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+            }
+            assertEquals(false, truncated.get(10, TimeUnit.SECONDS));
+            assertEquals(false, misshapen.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+}
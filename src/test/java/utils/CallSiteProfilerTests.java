@@ -0,0 +1,69 @@
+package utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CallSiteProfilerTests {
+
+    @After
+    public void disable() {
+        CallSiteProfiler.setEnabled(false);
+        CallSiteProfiler.setSampleInterval(64);
+    }
+
+    @Test
+    public void attributesToNestedPhasesAcrossThreads() throws InterruptedException {
+        CallSiteProfiler.setEnabled(true);
+        CallSiteProfiler.setSampleInterval(1);
+        CallSiteProfiler.reset();
+
+        Runnable work = () -> {
+            try (CallSiteProfiler.Phase outer = CallSiteProfiler.phase("outer")) {
+                CallSiteProfiler.record("op");
+                CallSiteProfiler.step("second");
+                try (CallSiteProfiler.Phase inner = CallSiteProfiler.phase("inner")) {
+                    CallSiteProfiler.record("op");
+                    CallSiteProfiler.record("op");
+                }
+            }
+            CallSiteProfiler.record("op");
+        };
+        Thread thread = new Thread(work);
+        thread.start();
+        work.run();
+        thread.join();
+
+        CallSiteProfiler.Snapshot snapshot = CallSiteProfiler.snapshot();
+        assertEquals(2L, (long) snapshot.phases.get("outer op"));
+        assertEquals(4L, (long) snapshot.phases.get("outer > second > inner op"));
+        assertEquals(2L, (long) snapshot.phases.get("(no phase) op"));
+
+        long sampled = 0;
+        for (Map.Entry<String, Long> callSite : snapshot.callSites.entrySet()) {
+            assertTrue(callSite.getKey().contains("CallSiteProfilerTests"));
+            sampled += callSite.getValue();
+        }
+        assertEquals(8, sampled);
+    }
+
+    @Test
+    public void foldsCountsOfEndedThreads() throws InterruptedException {
+        CallSiteProfiler.setEnabled(true);
+        CallSiteProfiler.reset();
+
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(() -> CallSiteProfiler.record("op"));
+            thread.start();
+            thread.join();
+        }
+
+        assertTrue(CallSiteProfiler.registeredThreads() < 10);
+        assertEquals(200L, (long) CallSiteProfiler.snapshot().phases.get("(no phase) op"));
+    }
+
+}
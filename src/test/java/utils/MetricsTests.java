@@ -0,0 +1,48 @@
+package utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTests {
+
+    @After
+    public void disable() {
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void countsOnlyWhenEnabled() {
+        Metrics.Counter counter = Metrics.counter("test.counter");
+        Metrics.setEnabled(false);
+        counter.increment();
+        assertEquals(0, Metrics.snapshot().counter("test.counter"));
+
+        Metrics.setEnabled(true);
+        counter.add(3);
+        assertEquals(3, Metrics.snapshot().counter("test.counter"));
+
+        Metrics.reset();
+        assertEquals(0, counter.sum());
+    }
+
+    @Test
+    public void histogramPercentilesWithinBucketError() {
+        Metrics.setEnabled(true);
+        Metrics.Histogram histogram = Metrics.histogram("test.histogram");
+        for (int i = 1; i <= 1000; i++) histogram.record(i);
+
+        Metrics.HistogramSnapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.count);
+        assertEquals(1000, snapshot.max);
+        assertEquals(500.5, snapshot.mean(), 1e-9);
+
+        long p50 = snapshot.percentile(0.5);
+        assertTrue(p50 >= 500 && p50 <= 500 * 9 / 8);
+        assertEquals(1000, snapshot.percentile(1));
+        assertTrue(snapshot.percentile(0.001) <= 1);
+    }
+
+}
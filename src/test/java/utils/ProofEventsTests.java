@@ -0,0 +1,47 @@
+package utils;
+
+import crypto.Scalar;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+import ringct.proofs.BulletProof;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ProofEventsTests {
+
+    @Test
+    public void recordsOperationsWhileRecording() throws IOException {
+        BulletProof proof = BulletProof.prove(Scalar.intToScalar(7), Scalar.randomScalar());
+
+        Map<String, RecordedEvent> events = new HashMap<>();
+        Path file = Files.createTempFile("proof-events", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("monero.Proof");
+            recording.start();
+            BulletProof.prove(Scalar.intToScalar(7), Scalar.randomScalar());
+            assertTrue(proof.verify());
+            recording.stop();
+            recording.dump(file);
+
+            for (RecordedEvent event : RecordingFile.readAllEvents(file))
+                events.put(event.getString("operation"), event);
+        } finally {
+            Files.delete(file);
+        }
+
+        assertEquals("ok", events.get("BulletProof.prove").getString("outcome"));
+        assertEquals("valid", events.get("BulletProof.verify").getString("outcome"));
+        assertEquals(128, events.get("BulletProof.verify").getInt("multiExpSize"));
+        assertTrue(events.get("BulletProof.verify").getDuration().toNanos() > 0);
+    }
+
+}